@@ -0,0 +1,32 @@
+package com.chopshop166.chopshoplib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks for {@link PersistenceCheck}. */
+@State(Scope.Thread)
+public class PersistenceCheckBenchmark {
+
+    /** The check under test. */
+    private PersistenceCheck check;
+    /** Loop counter, used to make the source flip periodically. */
+    private int counter;
+
+    /** Create the check. */
+    @Setup
+    public void setup() {
+        check = new PersistenceCheck(5, () -> (++counter & 0xF) != 0);
+    }
+
+    /**
+     * Evaluate the check once.
+     *
+     * @return The check result.
+     */
+    @Benchmark
+    public boolean getAsBoolean() {
+        return check.getAsBoolean();
+    }
+}
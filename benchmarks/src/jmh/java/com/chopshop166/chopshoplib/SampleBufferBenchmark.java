@@ -0,0 +1,60 @@
+package com.chopshop166.chopshoplib;
+
+import com.google.common.math.Stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks for adding a sample and recomputing statistics. */
+@State(Scope.Thread)
+public class SampleBufferBenchmark {
+
+    /** The number of samples held by each buffer. */
+    @Param({ "10", "25", "100" })
+    public int numSamples;
+
+    /** Boxed sample buffer. */
+    private SampleBuffer<Double> boxed;
+    /** Primitive sample buffer. */
+    private DoubleSampleBuffer primitive;
+    /** The next sample to add. */
+    private double sample;
+
+    /** Create and fill the buffers. */
+    @Setup
+    public void setup() {
+        boxed = new SampleBuffer<>(numSamples);
+        primitive = new DoubleSampleBuffer(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            boxed.add((double) i);
+            primitive.add(i);
+        }
+    }
+
+    /**
+     * Add to a {@link SampleBuffer} and compute stats with {@link Stats#of}.
+     *
+     * @return The standard deviation.
+     */
+    @Benchmark
+    public double boxedAddAndStats() {
+        sample += 1.0;
+        boxed.add(sample);
+        return Stats.of(boxed).populationStandardDeviation();
+    }
+
+    /**
+     * Add to a {@link DoubleSampleBuffer} and read its running stats.
+     *
+     * @return The standard deviation.
+     */
+    @Benchmark
+    public double primitiveAddAndStats() {
+        sample += 1.0;
+        primitive.add(sample);
+        return primitive.populationStandardDeviation();
+    }
+}
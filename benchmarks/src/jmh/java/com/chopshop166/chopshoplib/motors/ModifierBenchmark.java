@@ -0,0 +1,77 @@
+package com.chopshop166.chopshoplib.motors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks for {@link Modifier} and {@link ModifierGroup}. */
+@State(Scope.Thread)
+public class ModifierBenchmark {
+
+    /** A typical joystick shaping chain. */
+    private ModifierGroup group;
+    /** A chain of modifiers that keep primitive state. */
+    private ModifierGroup filters;
+    /** A lone rolling average. */
+    private Modifier average;
+    /** Simulated joystick positions. */
+    private final double[] inputs = new double[64];
+    /** The index of the next input. */
+    private int index;
+
+    /** Create the modifiers and inputs. */
+    @Setup
+    public void setup() {
+        group = new ModifierGroup(Modifier.deadband(0.05), Modifier.power(2), Modifier.rollingAverage(10),
+                Modifier.upperLimit(() -> false), Modifier.lowerLimit(() -> false));
+        filters = new ModifierGroup(Modifier.deadband(0.05), Modifier.slewLimit(0.02),
+                Modifier.exponentialAverage(0.2));
+        average = Modifier.rollingAverage(25);
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = Math.sin(i * 2 * Math.PI / inputs.length);
+        }
+    }
+
+    /**
+     * Get the next simulated joystick position.
+     *
+     * @return The input value.
+     */
+    private double nextInput() {
+        index = (index + 1) & (inputs.length - 1);
+        return inputs[index];
+    }
+
+    /**
+     * Run a full modifier chain.
+     *
+     * @return The modified speed.
+     */
+    @Benchmark
+    public double groupRun() {
+        return group.run(nextInput());
+    }
+
+    /**
+     * Run a chain of deadband, slew and EMA modifiers.
+     *
+     * The GC profiler should report no allocation per call.
+     *
+     * @return The modified speed.
+     */
+    @Benchmark
+    public double filterChain() {
+        return filters.run(nextInput());
+    }
+
+    /**
+     * Run a rolling average.
+     *
+     * @return The averaged speed.
+     */
+    @Benchmark
+    public double rollingAverage() {
+        return average.applyAsDouble(nextInput());
+    }
+}
@@ -0,0 +1,49 @@
+package com.chopshop166.chopshoplib.motors;
+
+import com.chopshop166.chopshoplib.sensors.MockEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks for {@link SmartMotorController}. */
+@State(Scope.Thread)
+public class SmartMotorControllerBenchmark {
+
+    /** The controller under test. */
+    private SmartMotorController controller;
+
+    /** Create a mock controller with validators. */
+    @Setup
+    public void setup() {
+        final MockMotorController motor = new MockMotorController();
+        final MockEncoder encoder = new MockEncoder();
+        controller = new SmartMotorController(motor, encoder);
+        controller.addValidator(() -> Math.abs(motor.get()) < 1.5);
+        controller.addValidator(() -> Math.abs(encoder.getRate()) < 1000);
+        controller.addValidator(() -> encoder.getDistance() < 1000);
+        controller.setValidationPeriod(0);
+    }
+
+    /**
+     * Check the cached validation result.
+     *
+     * @return Whether all validators passed.
+     */
+    @Benchmark
+    public boolean validate() {
+        return controller.validate();
+    }
+
+    /**
+     * Run all validators.
+     *
+     * @return Whether all validators passed.
+     */
+    @Benchmark
+    public boolean sampleValidators() {
+        controller.sampleValidators();
+        return controller.validate();
+    }
+}
@@ -0,0 +1,72 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import com.chopshop166.chopshoplib.SampleFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for the {@link Lidar} polling, filtering and publication paths,
+ * using a simulated sensor.
+ */
+@State(Scope.Thread)
+public class LidarBenchmark {
+
+    /** The filter to use. */
+    @Param({ "mean", "median" })
+    public String filterType;
+
+    /** The simulated sensor. */
+    private MockTinyLidar sensor;
+    /** The sensor driver under test. */
+    private Lidar lidar;
+    /** The driver's registration with the scheduler. */
+    private I2CBusScheduler.Device device;
+    /** Fake clock, in seconds. */
+    private double time;
+
+    /** Create the sensor on a scheduler that isn't started, so the benchmark can poll. */
+    @Setup
+    public void setup() {
+        sensor = new MockTinyLidar(166);
+        sensor.setDistance(1000);
+        sensor.setNoise(15);
+        final SampleFilter filter = "median".equals(filterType) ? SampleFilter.median(25, 3.0)
+                : SampleFilter.mean(25);
+        final I2CBusScheduler scheduler = new I2CBusScheduler("LiDAR-Benchmark");
+        lidar = new Lidar(sensor, "LiDAR", filter, scheduler, () -> time);
+        device = lidar.getPollDevice();
+    }
+
+    /** Unregister the sensor. */
+    @TearDown
+    public void tearDown() {
+        lidar.close();
+    }
+
+    /**
+     * Poll the sensor once.
+     *
+     * @return The published reading.
+     */
+    @Benchmark
+    public Lidar.Reading poll() {
+        time += 0.02;
+        device.pollNow();
+        return lidar.getReading();
+    }
+
+    /**
+     * Look up a past distance.
+     *
+     * @return The distance.
+     */
+    @Benchmark
+    public double distanceAt() {
+        return lidar.getDistanceAt(time - 0.5, Lidar.MeasurementType.MILLIMETERS);
+    }
+}
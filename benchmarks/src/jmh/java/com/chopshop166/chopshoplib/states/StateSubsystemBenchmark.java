@@ -0,0 +1,77 @@
+package com.chopshop166.chopshoplib.states;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link StateSubsystem}.
+ *
+ * Subsystems register with the command scheduler, so this needs the desktop
+ * HAL libraries that the benchmark build extracts.
+ */
+@State(Scope.Thread)
+public class StateSubsystemBenchmark {
+
+    /** The subsystem under test. */
+    private Door door;
+
+    /** Create the subsystem. */
+    @Setup
+    public void setup() {
+        door = new Door();
+    }
+
+    /**
+     * Toggle the state once.
+     *
+     * @return The new state.
+     */
+    @Benchmark
+    public OpenClose setState() {
+        door.setState(door.getState() == OpenClose.OPEN ? OpenClose.CLOSED : OpenClose.OPEN);
+        return door.getState();
+    }
+
+    /**
+     * Run the current state's handler once.
+     *
+     * @return The new state.
+     */
+    @Benchmark
+    public OpenClose handleState() {
+        door.runHandler();
+        return door.getState();
+    }
+
+    /** Minimal state machine that flips between states. */
+    private static class Door extends StateSubsystem<OpenClose> {
+
+        /** Number of times a handler has run. */
+        private int counter;
+
+        /** Create the subsystem and its transitions. */
+        /* package */ Door() {
+            super(OpenClose.OPEN);
+            transition(OpenClose.OPEN, OpenClose.CLOSED);
+            transition(OpenClose.CLOSED, OpenClose.OPEN);
+            onEntry(OpenClose.OPEN, () -> counter++);
+            onEntry(OpenClose.CLOSED, () -> counter++);
+            onExit(OpenClose.OPEN, () -> counter++);
+            onExit(OpenClose.CLOSED, () -> counter++);
+            handle(OpenClose.OPEN, () -> OpenClose.CLOSED);
+            handle(OpenClose.CLOSED, () -> OpenClose.OPEN);
+        }
+
+        /** Run the handler for the current state. */
+        /* package */ void runHandler() {
+            handleState(getState());
+        }
+
+        @Override
+        public void safeState() {
+            setState(OpenClose.OPEN);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.chopshop166.chopshoplib;
+
+/**
+ * Implements a circular sample buffer of primitive doubles.
+ *
+ * The running sum, mean, variance, minimum and maximum are kept up to date as
+ * samples are added, so reading any of them is O(1) and adding a sample never
+ * allocates.
+ */
+public class DoubleSampleBuffer {
+
+    /** The stored samples. */
+    private final double[] samples;
+    /** Sequence numbers of the window minimum candidates, oldest first. */
+    private final long[] minQueue;
+    /** Sequence numbers of the window maximum candidates, oldest first. */
+    private final long[] maxQueue;
+    /** Index of the oldest min candidate in {@link #minQueue}. */
+    private int minHead;
+    /** Number of min candidates. */
+    private int minSize;
+    /** Index of the oldest max candidate in {@link #maxQueue}. */
+    private int maxHead;
+    /** Number of max candidates. */
+    private int maxSize;
+    /** The number of samples added since the last clear. */
+    private long count;
+    /** The number of samples currently held. */
+    private int size;
+    /** The running mean. */
+    private double mean;
+    /** The running sum of squared differences from the mean. */
+    private double sumSquares;
+
+    /**
+     * Create a Sample Buffer with a default length of 25.
+     */
+    public DoubleSampleBuffer() {
+        this(25);
+    }
+
+    /**
+     * Create a Sample Buffer.
+     *
+     * @param numSamples The number of samples to use
+     */
+    public DoubleSampleBuffer(final int numSamples) {
+        if (numSamples <= 0) {
+            throw new IllegalArgumentException("Sample buffer must hold at least one sample");
+        }
+        this.samples = new double[numSamples];
+        this.minQueue = new long[numSamples];
+        this.maxQueue = new long[numSamples];
+    }
+
+    /**
+     * Add a new sample to the buffer, removing the oldest one if it is full.
+     *
+     * @param sample The value to add.
+     */
+    public void add(final double sample) {
+        final int capacity = samples.length;
+        final int index = (int) (count % capacity);
+        if (size < capacity) {
+            size++;
+            final double delta = sample - mean;
+            mean += delta / size;
+            sumSquares += delta * (sample - mean);
+        } else {
+            final double oldest = samples[index];
+            final double oldMean = mean;
+            mean += (sample - oldest) / capacity;
+            sumSquares += (sample - oldest) * (sample - mean + oldest - oldMean);
+        }
+        samples[index] = sample;
+        pushMin(sample);
+        pushMax(sample);
+        count++;
+        if (index == capacity - 1) {
+            // Once per full pass, recompute from scratch to stop rounding drift
+            recompute();
+        }
+    }
+
+    /**
+     * Get a sample from the buffer.
+     *
+     * @param index The index of the sample, where 0 is the oldest.
+     * @return The sample value.
+     */
+    public double get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return samples[(int) ((count - size + index) % samples.length)];
+    }
+
+    /**
+     * Get the most recently added sample.
+     *
+     * @return The newest sample, or NaN if the buffer is empty.
+     */
+    public double getLatest() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        return samples[(int) ((count - 1) % samples.length)];
+    }
+
+    /** Remove all samples from the buffer. */
+    public void clear() {
+        count = 0;
+        size = 0;
+        mean = 0;
+        sumSquares = 0;
+        minHead = 0;
+        minSize = 0;
+        maxHead = 0;
+        maxSize = 0;
+    }
+
+    /**
+     * Get the number of samples currently held.
+     *
+     * @return The number of samples.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the maximum number of samples held.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return samples.length;
+    }
+
+    /**
+     * Check if the buffer has no samples.
+     *
+     * @return True if there are no samples.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if the buffer is holding as many samples as it can.
+     *
+     * @return True if the buffer is full.
+     */
+    public boolean isFull() {
+        return size == samples.length;
+    }
+
+    /**
+     * Get the sum of the samples.
+     *
+     * @return The sum.
+     */
+    public double sum() {
+        return mean * size;
+    }
+
+    /**
+     * Get the arithmetic mean of the samples.
+     *
+     * @return The mean, or NaN if the buffer is empty.
+     */
+    public double mean() {
+        return size == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Get the population variance of the samples.
+     *
+     * @return The variance, or NaN if the buffer is empty.
+     */
+    public double populationVariance() {
+        return size == 0 ? Double.NaN : Math.max(0.0, sumSquares) / size;
+    }
+
+    /**
+     * Get the population standard deviation of the samples.
+     *
+     * @return The standard deviation, or NaN if the buffer is empty.
+     */
+    public double populationStandardDeviation() {
+        return Math.sqrt(populationVariance());
+    }
+
+    /**
+     * Get the smallest sample in the buffer.
+     *
+     * @return The minimum, or NaN if the buffer is empty.
+     */
+    public double min() {
+        return size == 0 ? Double.NaN : samples[(int) (minQueue[minHead] % samples.length)];
+    }
+
+    /**
+     * Get the largest sample in the buffer.
+     *
+     * @return The maximum, or NaN if the buffer is empty.
+     */
+    public double max() {
+        return size == 0 ? Double.NaN : samples[(int) (maxQueue[maxHead] % samples.length)];
+    }
+
+    /**
+     * Add the newest sample to the monotonic queue of minimum candidates.
+     *
+     * @param sample The sample being added.
+     */
+    private void pushMin(final double sample) {
+        final int capacity = samples.length;
+        if (minSize > 0 && minQueue[minHead] <= count - capacity) {
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        while (minSize > 0 && valueAt(minQueue[(minHead + minSize - 1) % capacity]) >= sample) {
+            minSize--;
+        }
+        minQueue[(minHead + minSize) % capacity] = count;
+        minSize++;
+    }
+
+    /**
+     * Add the newest sample to the monotonic queue of maximum candidates.
+     *
+     * @param sample The sample being added.
+     */
+    private void pushMax(final double sample) {
+        final int capacity = samples.length;
+        if (maxSize > 0 && maxQueue[maxHead] <= count - capacity) {
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        while (maxSize > 0 && valueAt(maxQueue[(maxHead + maxSize - 1) % capacity]) <= sample) {
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize) % capacity] = count;
+        maxSize++;
+    }
+
+    /**
+     * Get the sample with the given sequence number.
+     *
+     * @param sequence The sequence number.
+     * @return The sample value.
+     */
+    private double valueAt(final long sequence) {
+        return samples[(int) (sequence % samples.length)];
+    }
+
+    /** Recalculate the mean and variance directly from the samples. */
+    private void recompute() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += samples[i];
+        }
+        mean = total / size;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            final double delta = samples[i] - mean;
+            squares += delta * delta;
+        }
+        sumSquares = squares;
+    }
+}
@@ -0,0 +1,295 @@
+package com.chopshop166.chopshoplib;
+
+/**
+ * Generates a smooth path to a goal, one step at a time.
+ *
+ * Each call to {@link #calculate(double)} moves the reference towards the goal
+ * without exceeding the maximum velocity and acceleration. This produces a
+ * trapezoidal profile, or an S-curve if a maximum jerk is also set. The goal
+ * can be changed at any time, and the profile continues from its current
+ * state. Stepping the profile never allocates.
+ *
+ * If no constraints are set, the reference jumps straight to the goal.
+ */
+public class MotionProfile {
+
+    /** The maximum velocity, or 0 if unconstrained. */
+    private double maxVelocity;
+    /** The maximum acceleration, or 0 if unconstrained. */
+    private double maxAcceleration;
+    /** The maximum jerk, or 0 for a trapezoidal profile. */
+    private double maxJerk;
+    /** The goal position. */
+    private double goal;
+    /** The current reference position. */
+    private double position;
+    /** The current reference velocity. */
+    private double velocity;
+    /** The current reference acceleration. */
+    private double acceleration;
+
+    /** Create an unconstrained profile. */
+    public MotionProfile() {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Create a trapezoidal profile.
+     *
+     * @param maxVelocity     The maximum velocity.
+     * @param maxAcceleration The maximum acceleration.
+     */
+    public MotionProfile(final double maxVelocity, final double maxAcceleration) {
+        this(maxVelocity, maxAcceleration, 0);
+    }
+
+    /**
+     * Create an S-curve profile.
+     *
+     * @param maxVelocity     The maximum velocity.
+     * @param maxAcceleration The maximum acceleration.
+     * @param maxJerk         The maximum jerk, or 0 for a trapezoidal profile.
+     */
+    public MotionProfile(final double maxVelocity, final double maxAcceleration, final double maxJerk) {
+        setConstraints(maxVelocity, maxAcceleration, maxJerk);
+    }
+
+    /**
+     * Change the constraints.
+     *
+     * Setting the velocity or acceleration to 0 disables the profile.
+     *
+     * @param maxVelocity     The maximum velocity.
+     * @param maxAcceleration The maximum acceleration.
+     * @param maxJerk         The maximum jerk, or 0 for a trapezoidal profile.
+     */
+    public void setConstraints(final double maxVelocity, final double maxAcceleration, final double maxJerk) {
+        if (maxVelocity < 0 || maxAcceleration < 0 || maxJerk < 0) {
+            throw new IllegalArgumentException("Profile constraints cannot be negative");
+        }
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+    }
+
+    /**
+     * Check if the profile has constraints.
+     *
+     * @return False if the reference jumps straight to the goal.
+     */
+    public boolean isEnabled() {
+        return maxVelocity > 0 && maxAcceleration > 0;
+    }
+
+    /**
+     * Start the profile at rest at a position, with that position as the goal.
+     *
+     * @param position The starting position.
+     */
+    public void reset(final double position) {
+        reset(position, 0);
+    }
+
+    /**
+     * Start the profile from a position and velocity, with that position as the
+     * goal.
+     *
+     * @param position The starting position.
+     * @param velocity The starting velocity.
+     */
+    public void reset(final double position, final double velocity) {
+        this.position = position;
+        this.velocity = velocity;
+        this.acceleration = 0;
+        this.goal = position;
+    }
+
+    /**
+     * Set the goal to move towards.
+     *
+     * @param goal The goal position.
+     */
+    public void setGoal(final double goal) {
+        this.goal = goal;
+    }
+
+    /**
+     * Get the goal.
+     *
+     * @return The goal position.
+     */
+    public double getGoal() {
+        return goal;
+    }
+
+    /**
+     * Advance the profile.
+     *
+     * @param dt The time since the last step, in seconds.
+     * @return The new reference position.
+     */
+    public double calculate(final double dt) {
+        if (!isEnabled()) {
+            reset(goal);
+            return position;
+        }
+        if (dt <= 0) {
+            return position;
+        }
+        // Work in the direction of the goal, so that it is always ahead
+        final double direction = goal >= position ? 1 : -1;
+        final double distance = (goal - position) * direction;
+        final double speed = velocity * direction;
+        final double accel = acceleration * direction;
+
+        final double newAccel;
+        final double newSpeed;
+        if (maxJerk > 0) {
+            newAccel = jerkLimitedStep(distance, speed, accel, dt);
+            newSpeed = Math.min(maxVelocity, speed + (accel + newAccel) / 2 * dt);
+        } else {
+            newAccel = trapezoidalStep(distance, speed, dt);
+            newSpeed = speed + newAccel * dt;
+        }
+        final double travelled = (speed + newSpeed) / 2 * dt;
+
+        // Finish once the goal is reached, or nearly reached, while slow enough to stop
+        final double settle = maxAcceleration * dt;
+        if ((travelled >= distance || distance - travelled <= settle * dt) && Math.abs(newSpeed) <= settle * 2) {
+            reset(goal);
+        } else {
+            position += travelled * direction;
+            velocity = newSpeed * direction;
+            acceleration = newAccel * direction;
+        }
+        return position;
+    }
+
+    /**
+     * Check if the reference has reached the goal.
+     *
+     * @return True if the profile is at rest at the goal.
+     */
+    public boolean isFinished() {
+        return position == goal && velocity == 0;
+    }
+
+    /**
+     * Get the reference position.
+     *
+     * @return The position.
+     */
+    public double getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the reference velocity.
+     *
+     * @return The velocity.
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * Get the reference acceleration.
+     *
+     * @return The acceleration.
+     */
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * Choose the acceleration for a trapezoidal profile.
+     *
+     * The new speed is the fastest that can still stop at the goal after this
+     * step, so the profile brakes on the exact step it needs to.
+     *
+     * @param distance The distance to the goal, which is never negative.
+     * @param speed    The speed towards the goal.
+     * @param dt       The time step.
+     * @return The acceleration towards the goal.
+     */
+    private double trapezoidalStep(final double distance, final double speed, final double dt) {
+        final double reach = Math.max(0, distance - speed * dt / 2);
+        final double half = maxAcceleration * dt / 2;
+        final double stopping = Math.sqrt(half * half + 2 * maxAcceleration * reach) - half;
+        final double target = Math.min(maxVelocity, stopping);
+        return clamp(target - speed, maxAcceleration * dt) / dt;
+    }
+
+    /**
+     * Choose the acceleration for an S-curve profile.
+     *
+     * Keep accelerating if stopping from the next step would still end before
+     * the goal, otherwise start braking. The acceleration changes by at most
+     * the jerk limit each step.
+     *
+     * @param distance The distance to the goal, which is never negative.
+     * @param speed    The speed towards the goal.
+     * @param accel    The acceleration towards the goal.
+     * @param dt       The time step.
+     * @return The acceleration towards the goal.
+     */
+    private double jerkLimitedStep(final double distance, final double speed, final double accel,
+            final double dt) {
+        final double step = maxJerk * dt;
+        double up = Math.min(accel + step, maxAcceleration);
+        // Ease off early enough that the speed levels out at the limit
+        if (speed + up * Math.abs(up) / (2 * maxJerk) >= maxVelocity) {
+            up = Math.max(accel - step, Math.min(0, up));
+        }
+        final double nextSpeed = speed + (accel + up) / 2 * dt;
+        final double nextDistance = distance - (speed + nextSpeed) / 2 * dt;
+        if (stoppingDistance(nextSpeed, up) < nextDistance) {
+            return up;
+        }
+        // Brake as hard as needed, never harder than the limits allow
+        final double peak = Math.min(maxAcceleration, Math.sqrt(Math.max(0, maxJerk * speed + accel * accel / 2)));
+        return Math.max(accel - step, -Math.max(peak, step));
+    }
+
+    /**
+     * Get the distance needed to come to rest with the jerk limit.
+     *
+     * Braking ramps the deceleration up to its peak, holds it, then ramps it
+     * back down to reach zero acceleration just as the speed reaches zero.
+     *
+     * @param speed The speed, in the direction of travel.
+     * @param accel The acceleration, in the direction of travel.
+     * @return The stopping distance.
+     */
+    private double stoppingDistance(final double speed, final double accel) {
+        if (speed <= 0 && accel <= 0) {
+            return speed < 0 ? Double.NEGATIVE_INFINITY : 0;
+        }
+        final double jerk = maxJerk;
+        double peak = Math.sqrt(Math.max(0, jerk * speed + accel * accel / 2));
+        peak = Math.max(Math.min(peak, maxAcceleration), -accel);
+        // Ramp down to the peak deceleration
+        final double t1 = (accel + peak) / jerk;
+        final double v1 = speed + accel * t1 - jerk * t1 * t1 / 2;
+        final double d1 = speed * t1 + accel * t1 * t1 / 2 - jerk * t1 * t1 * t1 / 6;
+        // Hold the peak deceleration
+        final double t3 = peak / jerk;
+        final double t2 = Math.max(0, (v1 - peak * t3 / 2) / peak);
+        final double v2 = v1 - peak * t2;
+        final double d2 = v1 * t2 - peak * t2 * t2 / 2;
+        // Ramp the deceleration back to zero
+        final double d3 = v2 * t3 - peak * t3 * t3 / 2 + jerk * t3 * t3 * t3 / 6;
+        return d1 + d2 + d3;
+    }
+
+    /**
+     * Limit a value to a symmetric range.
+     *
+     * @param value The value.
+     * @param limit The largest magnitude allowed.
+     * @return The limited value.
+     */
+    private static double clamp(final double value, final double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
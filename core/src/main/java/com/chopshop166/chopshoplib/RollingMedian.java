@@ -0,0 +1,367 @@
+package com.chopshop166.chopshoplib;
+
+/**
+ * Keeps the median of the most recent samples.
+ *
+ * Samples are kept in order in a tree that is allocated up front, so adding a
+ * sample is O(log n) and never allocates. The median is O(log n), and the
+ * median absolute deviation is O(log^2 n).
+ */
+public class RollingMedian {
+
+    /** The index used as a null node. */
+    private static final int NIL = 0;
+
+    /** The samples in the order they were added. */
+    private final double[] window;
+    /** The value held by each tree node. */
+    private final double[] keys;
+    /** The left child of each tree node. */
+    private final int[] left;
+    /** The right child of each tree node. */
+    private final int[] right;
+    /** The number of nodes in each subtree. */
+    private final int[] sizes;
+    /** The heap priority of each tree node. */
+    private final int[] priorities;
+    /** Stack of unused tree nodes. */
+    private final int[] freeNodes;
+    /** The number of unused tree nodes. */
+    private int numFree;
+    /** The root of the tree. */
+    private int root = NIL;
+    /** The number of samples added since the last clear. */
+    private long count;
+    /** State for generating node priorities. */
+    private int seed = 0x9E3779B9;
+
+    /**
+     * Create a rolling median.
+     *
+     * @param numSamples The number of samples to use
+     */
+    public RollingMedian(final int numSamples) {
+        if (numSamples <= 0) {
+            throw new IllegalArgumentException("Rolling median must hold at least one sample");
+        }
+        window = new double[numSamples];
+        keys = new double[numSamples + 1];
+        left = new int[numSamples + 1];
+        right = new int[numSamples + 1];
+        sizes = new int[numSamples + 1];
+        priorities = new int[numSamples + 1];
+        freeNodes = new int[numSamples];
+        clear();
+    }
+
+    /**
+     * Add a new sample, removing the oldest one if it is full.
+     *
+     * @param sample The value to add. This must not be NaN.
+     */
+    public void add(final double sample) {
+        if (Double.isNaN(sample)) {
+            throw new IllegalArgumentException("Rolling median samples cannot be NaN");
+        }
+        final int index = (int) (count % window.length);
+        if (count >= window.length) {
+            root = erase(root, window[index]);
+        }
+        window[index] = sample;
+        final int node = freeNodes[--numFree];
+        keys[node] = sample;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        priorities[node] = nextPriority();
+        root = insert(root, node);
+        count++;
+    }
+
+    /** Remove all samples. */
+    public final void clear() {
+        root = NIL;
+        count = 0;
+        numFree = freeNodes.length;
+        for (int i = 0; i < numFree; i++) {
+            freeNodes[i] = numFree - i;
+        }
+    }
+
+    /**
+     * Get the number of samples currently held.
+     *
+     * @return The number of samples.
+     */
+    public int size() {
+        return sizes[root];
+    }
+
+    /**
+     * Get the maximum number of samples held.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return window.length;
+    }
+
+    /**
+     * Check if there are no samples.
+     *
+     * @return True if there are no samples.
+     */
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * Get the most recently added sample.
+     *
+     * @return The newest sample, or NaN if there are no samples.
+     */
+    public double getLatest() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return window[(int) ((count - 1) % window.length)];
+    }
+
+    /**
+     * Get a sample by its rank.
+     *
+     * @param rank The rank of the sample, where 0 is the smallest.
+     * @return The sample value.
+     */
+    public double select(final int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " out of bounds for size " + size());
+        }
+        int node = root;
+        int remaining = rank;
+        while (true) {
+            final int leftSize = sizes[left[node]];
+            if (remaining < leftSize) {
+                node = left[node];
+            } else if (remaining == leftSize) {
+                return keys[node];
+            } else {
+                remaining -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * Get the median of the samples.
+     *
+     * @return The median, or NaN if there are no samples.
+     */
+    public double median() {
+        final int size = size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size % 2 == 1) {
+            return select(size / 2);
+        }
+        return (select(size / 2 - 1) + select(size / 2)) / 2;
+    }
+
+    /**
+     * Get the median absolute deviation of the samples.
+     *
+     * Multiply by 1.4826 for an estimate of the standard deviation that isn't
+     * skewed by outliers.
+     *
+     * @return The median absolute deviation, or NaN if there are no samples.
+     */
+    public double medianAbsoluteDeviation() {
+        final int size = size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        final double median = median();
+        final int below = countBelow(median);
+        if (size % 2 == 1) {
+            return deviation(size / 2, median, below);
+        }
+        return (deviation(size / 2 - 1, median, below) + deviation(size / 2, median, below)) / 2;
+    }
+
+    /**
+     * Find a deviation from the median by rank.
+     *
+     * The deviations of the samples below the median and of the rest both form
+     * sorted sequences, so this selects from the merge of the two.
+     *
+     * @param rank   The rank of the deviation, where 0 is the smallest.
+     * @param median The median.
+     * @param below  The number of samples below the median.
+     * @return The deviation.
+     */
+    private double deviation(final int rank, final double median, final int below) {
+        final int above = size() - below;
+        int low = Math.max(0, rank + 1 - above);
+        int high = Math.min(rank + 1, below);
+        while (low < high) {
+            final int fromBelow = (low + high) >>> 1;
+            final int fromAbove = rank + 1 - fromBelow;
+            if (fromAbove > 0 && median - select(below - 1 - fromBelow) < select(below + fromAbove - 1) - median) {
+                low = fromBelow + 1;
+            } else {
+                high = fromBelow;
+            }
+        }
+        final int fromAbove = rank + 1 - low;
+        final double lowerDev = low > 0 ? median - select(below - low) : 0.0;
+        final double upperDev = fromAbove > 0 ? select(below + fromAbove - 1) - median : 0.0;
+        return Math.max(lowerDev, upperDev);
+    }
+
+    /**
+     * Count the samples strictly less than a value.
+     *
+     * @param value The value to compare to.
+     * @return The number of samples.
+     */
+    private int countBelow(final double value) {
+        int node = root;
+        int result = 0;
+        while (node != NIL) {
+            if (keys[node] < value) {
+                result += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Insert a node into a subtree.
+     *
+     * @param subtree The subtree root.
+     * @param node    The node to insert.
+     * @return The new subtree root.
+     */
+    private int insert(final int subtree, final int node) {
+        if (subtree == NIL) {
+            return node;
+        }
+        int result = subtree;
+        if (keys[node] < keys[subtree]) {
+            left[subtree] = insert(left[subtree], node);
+            if (priorities[left[subtree]] > priorities[subtree]) {
+                result = rotateRight(subtree);
+            }
+        } else {
+            right[subtree] = insert(right[subtree], node);
+            if (priorities[right[subtree]] > priorities[subtree]) {
+                result = rotateLeft(subtree);
+            }
+        }
+        update(subtree);
+        update(result);
+        return result;
+    }
+
+    /**
+     * Remove one node with the given value from a subtree.
+     *
+     * @param subtree The subtree root.
+     * @param value   The value to remove.
+     * @return The new subtree root.
+     */
+    private int erase(final int subtree, final double value) {
+        if (subtree == NIL) {
+            return NIL;
+        }
+        if (value == keys[subtree]) {
+            freeNodes[numFree++] = subtree;
+            return merge(left[subtree], right[subtree]);
+        }
+        if (value < keys[subtree]) {
+            left[subtree] = erase(left[subtree], value);
+        } else {
+            right[subtree] = erase(right[subtree], value);
+        }
+        update(subtree);
+        return subtree;
+    }
+
+    /**
+     * Join two subtrees, where every value in the first is no larger than every
+     * value in the second.
+     *
+     * @param lower The lower subtree.
+     * @param upper The upper subtree.
+     * @return The joined subtree root.
+     */
+    private int merge(final int lower, final int upper) {
+        if (lower == NIL) {
+            return upper;
+        }
+        if (upper == NIL) {
+            return lower;
+        }
+        if (priorities[lower] > priorities[upper]) {
+            right[lower] = merge(right[lower], upper);
+            update(lower);
+            return lower;
+        }
+        left[upper] = merge(lower, left[upper]);
+        update(upper);
+        return upper;
+    }
+
+    /**
+     * Rotate a subtree so that its left child becomes the root.
+     *
+     * @param node The subtree root.
+     * @return The new subtree root.
+     */
+    private int rotateRight(final int node) {
+        final int child = left[node];
+        left[node] = right[child];
+        right[child] = node;
+        return child;
+    }
+
+    /**
+     * Rotate a subtree so that its right child becomes the root.
+     *
+     * @param node The subtree root.
+     * @return The new subtree root.
+     */
+    private int rotateLeft(final int node) {
+        final int child = right[node];
+        right[node] = left[child];
+        left[child] = node;
+        return child;
+    }
+
+    /**
+     * Recalculate the size of a subtree from its children.
+     *
+     * @param node The subtree root.
+     */
+    private void update(final int node) {
+        if (node != NIL) {
+            sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+        }
+    }
+
+    /**
+     * Generate a pseudorandom node priority.
+     *
+     * @return The priority.
+     */
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -8,6 +8,9 @@ import java.util.LinkedList;
  * Though it can be used as a linked list for other operations, it's
  * discouraged. Use add to verify that adding an element removes old
  * elements as necessary.
+ *
+ * For numeric samples, prefer {@link DoubleSampleBuffer}, which avoids boxing
+ * and keeps its statistics up to date as samples are added.
  */
 public class SampleBuffer<E> extends LinkedList<E> {
 
@@ -0,0 +1,169 @@
+package com.chopshop166.chopshoplib;
+
+/**
+ * Combines a stream of noisy samples into a single value.
+ */
+public interface SampleFilter {
+
+    /** Scale from median absolute deviation to standard deviation, for normal noise. */
+    double MAD_SCALE = 1.4826;
+    /** The default smallest deviation the outlier gate assumes. */
+    double DEFAULT_MIN_DEVIATION = 1.0;
+
+    /**
+     * Add a new sample.
+     *
+     * @param sample The value to add.
+     * @return False if the sample was rejected as an outlier.
+     */
+    boolean add(double sample);
+
+    /**
+     * Get the filtered value.
+     *
+     * @return The value, or NaN if there are no samples.
+     */
+    double getValue();
+
+    /**
+     * Get an estimate of the standard deviation of the samples.
+     *
+     * @return The deviation, or NaN if there are no samples.
+     */
+    double getDeviation();
+
+    /** Remove all samples. */
+    void reset();
+
+    /**
+     * Filter that averages the most recent samples.
+     *
+     * @param numSamples The number of samples to use.
+     * @return The filter.
+     */
+    static SampleFilter mean(final int numSamples) {
+        return new SampleFilter() {
+
+            /** The samples to average. */
+            private final DoubleSampleBuffer buffer = new DoubleSampleBuffer(numSamples);
+
+            @Override
+            public boolean add(final double sample) {
+                buffer.add(sample);
+                return true;
+            }
+
+            @Override
+            public double getValue() {
+                return buffer.mean();
+            }
+
+            @Override
+            public double getDeviation() {
+                return buffer.populationStandardDeviation();
+            }
+
+            @Override
+            public void reset() {
+                buffer.clear();
+            }
+        };
+    }
+
+    /**
+     * Filter that takes the median of the most recent samples.
+     *
+     * @param numSamples The number of samples to use.
+     * @return The filter.
+     */
+    static SampleFilter median(final int numSamples) {
+        return median(numSamples, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Filter that takes the median of the most recent samples, and rejects
+     * outliers.
+     *
+     * A sample is rejected if it is further from the median than the threshold
+     * times the estimated standard deviation (from the median absolute
+     * deviation). If more than half the window is rejected in a row, the window
+     * restarts from the rejected samples, so that real changes in the value get
+     * through at once.
+     *
+     * The deviation is at least {@link #DEFAULT_MIN_DEVIATION}, so outliers are
+     * still rejected when most samples are identical.
+     *
+     * @param numSamples       The number of samples to use.
+     * @param outlierThreshold The number of deviations to reject beyond.
+     * @return The filter.
+     */
+    static SampleFilter median(final int numSamples, final double outlierThreshold) {
+        return median(numSamples, outlierThreshold, DEFAULT_MIN_DEVIATION);
+    }
+
+    /**
+     * Filter that takes the median of the most recent samples, and rejects
+     * outliers.
+     *
+     * This is the same as {@link #median(int, double)}, but with a given floor
+     * on the deviation used to reject outliers. The floor should be about the
+     * resolution of the samples.
+     *
+     * @param numSamples       The number of samples to use.
+     * @param outlierThreshold The number of deviations to reject beyond.
+     * @param minDeviation     The smallest deviation to assume.
+     * @return The filter.
+     */
+    static SampleFilter median(final int numSamples, final double outlierThreshold, final double minDeviation) {
+        if (minDeviation <= 0) {
+            throw new IllegalArgumentException("Minimum deviation must be positive");
+        }
+        return new SampleFilter() {
+
+            /** The samples to take the median of. */
+            private final RollingMedian median = new RollingMedian(numSamples);
+            /** The samples rejected in a row. */
+            private final double[] run = new double[Math.max(1, numSamples / 2)];
+            /** The number of samples rejected in a row. */
+            private int rejected;
+
+            @Override
+            public boolean add(final double sample) {
+                if (median.size() >= 3) {
+                    final double limit = outlierThreshold * Math.max(minDeviation, getDeviation());
+                    if (Math.abs(sample - median.median()) > limit) {
+                        if (rejected < run.length) {
+                            run[rejected] = sample;
+                            rejected++;
+                            return false;
+                        }
+                        // A long run of outliers is a real change, so restart from it
+                        median.clear();
+                        for (int i = 0; i < rejected; i++) {
+                            median.add(run[i]);
+                        }
+                    }
+                }
+                rejected = 0;
+                median.add(sample);
+                return true;
+            }
+
+            @Override
+            public double getValue() {
+                return median.median();
+            }
+
+            @Override
+            public double getDeviation() {
+                return MAD_SCALE * median.medianAbsoluteDeviation();
+            }
+
+            @Override
+            public void reset() {
+                median.clear();
+                rejected = 0;
+            }
+        };
+    }
+}
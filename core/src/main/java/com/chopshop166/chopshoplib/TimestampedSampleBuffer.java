@@ -0,0 +1,127 @@
+package com.chopshop166.chopshoplib;
+
+/**
+ * Implements a circular buffer of timestamped samples, which can be looked up
+ * by time.
+ *
+ * Samples must be added in time order. Adding and looking up samples never
+ * allocates.
+ */
+public class TimestampedSampleBuffer {
+
+    /** The sample timestamps. */
+    private final double[] timestamps;
+    /** The sample values. */
+    private final double[] values;
+    /** The number of samples added since the last clear. */
+    private long count;
+
+    /**
+     * Create a buffer.
+     *
+     * @param numSamples The number of samples to hold.
+     */
+    public TimestampedSampleBuffer(final int numSamples) {
+        if (numSamples <= 0) {
+            throw new IllegalArgumentException("Sample buffer must hold at least one sample");
+        }
+        timestamps = new double[numSamples];
+        values = new double[numSamples];
+    }
+
+    /**
+     * Add a new sample, removing the oldest one if it is full.
+     *
+     * @param timestamp The time of the sample, no earlier than the last one.
+     * @param value     The sample value.
+     */
+    public void add(final double timestamp, final double value) {
+        final int index = (int) (count % timestamps.length);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        count++;
+    }
+
+    /** Remove all samples. */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Get the number of samples currently held.
+     *
+     * @return The number of samples.
+     */
+    public int size() {
+        return (int) Math.min(count, timestamps.length);
+    }
+
+    /**
+     * Get the timestamp of the oldest sample.
+     *
+     * @return The timestamp, or NaN if there are no samples.
+     */
+    public double getOldestTimestamp() {
+        return size() == 0 ? Double.NaN : timestamps[physical(0)];
+    }
+
+    /**
+     * Get the timestamp of the newest sample.
+     *
+     * @return The timestamp, or NaN if there are no samples.
+     */
+    public double getNewestTimestamp() {
+        return size() == 0 ? Double.NaN : timestamps[physical(size() - 1)];
+    }
+
+    /**
+     * Get the value at a given time.
+     *
+     * Values between samples are linearly interpolated. Times outside of the
+     * buffer get the value of the oldest or newest sample.
+     *
+     * @param timestamp The time to look up.
+     * @return The value, or NaN if there are no samples.
+     */
+    public double getAt(final double timestamp) {
+        final int size = size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        // Find the first sample after the timestamp
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return values[physical(0)];
+        }
+        if (low == size) {
+            return values[physical(size - 1)];
+        }
+        final int before = physical(low - 1);
+        final int after = physical(low);
+        final double span = timestamps[after] - timestamps[before];
+        if (span <= 0) {
+            return values[after];
+        }
+        final double fraction = (timestamp - timestamps[before]) / span;
+        return values[before] + (values[after] - values[before]) * fraction;
+    }
+
+    /**
+     * Convert an index from the oldest sample into an array index.
+     *
+     * @param index The index, where 0 is the oldest sample.
+     * @return The array index.
+     */
+    private int physical(final int index) {
+        return (int) ((count - size() + index) % timestamps.length);
+    }
+}
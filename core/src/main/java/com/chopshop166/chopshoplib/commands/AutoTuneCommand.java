@@ -0,0 +1,84 @@
+package com.chopshop166.chopshoplib.commands;
+
+import com.chopshop166.chopshoplib.motors.RelayAutoTuner;
+import com.chopshop166.chopshoplib.motors.SwPIDMotorController;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+
+/**
+ * Tune a software PID controller with relay feedback.
+ *
+ * The PID loop is paused while the command drives the motor, and resumed
+ * afterwards if it was running. Once the command finishes, the suggested gains
+ * can be read from the tuner. The command also ends if the tuner times out, and
+ * interrupting it aborts the tuner, so check {@link RelayAutoTuner#hasFailed()}
+ * first.
+ */
+public class AutoTuneCommand extends CommandBase {
+
+    /** The controller to tune. */
+    private final SwPIDMotorController controller;
+    /** The tuner that decides the output. */
+    private final RelayAutoTuner tuner;
+    /** The setpoint to oscillate around. */
+    private final double setpoint;
+    /** Whether the PID loop was running when the command started. */
+    private boolean wasEnabled;
+
+    /**
+     * Create the command.
+     *
+     * @param controller The controller to tune.
+     * @param tuner      The tuner, which holds the results.
+     * @param setpoint   The setpoint to oscillate around.
+     * @param subsystems All subsystems this command depends on.
+     */
+    public AutoTuneCommand(final SwPIDMotorController controller, final RelayAutoTuner tuner,
+            final double setpoint, final Subsystem... subsystems) {
+        super();
+        setName("Auto Tune");
+        addRequirements(subsystems);
+        this.controller = controller;
+        this.tuner = tuner;
+        this.setpoint = setpoint;
+    }
+
+    /**
+     * Get the tuner.
+     *
+     * @return The tuner, which holds the results.
+     */
+    public RelayAutoTuner getTuner() {
+        return tuner;
+    }
+
+    @Override
+    public void initialize() {
+        wasEnabled = controller.isPIDEnabled();
+        controller.disablePID();
+        tuner.start(setpoint);
+    }
+
+    @Override
+    public void execute() {
+        controller.set(tuner.update(controller.getMeasurement(), Timer.getFPGATimestamp()));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return tuner.isFinished() || tuner.hasFailed();
+    }
+
+    @Override
+    public void end(final boolean interrupted) {
+        if (interrupted) {
+            tuner.abort();
+        }
+        controller.stopMotor();
+        if (wasEnabled) {
+            controller.enablePID();
+        }
+    }
+}
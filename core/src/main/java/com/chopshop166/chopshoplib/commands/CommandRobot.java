@@ -11,6 +11,9 @@ import com.chopshop166.chopshoplib.HasSafeState;
 import com.chopshop166.chopshoplib.Resettable;
 import com.chopshop166.chopshoplib.RobotUtils;
 import com.chopshop166.chopshoplib.maps.RobotMapFor;
+import com.chopshop166.chopshoplib.motors.FaultRegistry;
+import com.chopshop166.chopshoplib.sensors.EncoderCache;
+import com.chopshop166.chopshoplib.sensors.GyroCache;
 import com.google.common.io.Resources;
 import com.google.common.reflect.ClassPath;
 
@@ -58,6 +61,20 @@ public abstract class CommandRobot extends TimedRobot implements Commandable {
         Shuffleboard.getTab("Shuffleboard").add("Autonomous", autoChooser);
     }
 
+    /**
+     * Refresh cached sensors and faults, then run the loop.
+     *
+     * This runs before the mode's periodic function, which runs before
+     * {@link #robotPeriodic()}, so every periodic function sees fresh values.
+     */
+    @Override
+    protected void loopFunc() {
+        EncoderCache.getInstance().refresh();
+        GyroCache.getInstance().refresh();
+        FaultRegistry.getInstance().sample();
+        super.loopFunc();
+    }
+
     @Override
     public void robotPeriodic() {
         // Do not call the super method, remove the annoying print
@@ -2,6 +2,7 @@ package com.chopshop166.chopshoplib.commands;
 
 import java.util.function.DoubleSupplier;
 
+import com.chopshop166.chopshoplib.MotionProfile;
 import com.chopshop166.chopshoplib.PersistenceCheck;
 
 import edu.wpi.first.math.controller.PIDController;
@@ -11,12 +12,17 @@ import edu.wpi.first.wpilibj2.command.PIDSubsystem;
 
 /**
  * A {@link PIDSubsystem} that has several presets that it can go to.
+ *
+ * If a motion profile is set, moving to a preset moves the setpoint along the
+ * profile instead of jumping straight to it.
  */
 public abstract class PresetSubsystem<T extends Enum<?> & DoubleSupplier> extends PIDSubsystem
         implements SmartSubsystem {
 
     /** Check to make sure it's at the setpoint for enough time. */
     private final PersistenceCheck persistenceCheck;
+    /** The motion profile for moving between presets. */
+    private final MotionProfile profile = new MotionProfile();
 
     /**
      * Construct the subsystem.
@@ -26,7 +32,7 @@ public abstract class PresetSubsystem<T extends Enum<?> & DoubleSupplier> extend
      */
     public PresetSubsystem(final PIDController controller, final int numSamples) {
         super(controller);
-        persistenceCheck = new PersistenceCheck(numSamples, controller::atSetpoint);
+        persistenceCheck = new PersistenceCheck(numSamples, () -> profile.isFinished() && controller.atSetpoint());
     }
 
     /**
@@ -38,7 +44,32 @@ public abstract class PresetSubsystem<T extends Enum<?> & DoubleSupplier> extend
      */
     public PresetSubsystem(final PIDController controller, final int numSamples, final double initial) {
         super(controller, initial);
-        persistenceCheck = new PersistenceCheck(numSamples, controller::atSetpoint);
+        persistenceCheck = new PersistenceCheck(numSamples, () -> profile.isFinished() && controller.atSetpoint());
+    }
+
+    /**
+     * Use a trapezoidal motion profile when moving to presets.
+     * 
+     * @param maxVelocity     The maximum setpoint velocity.
+     * @param maxAcceleration The maximum setpoint acceleration.
+     */
+    public void setMotionProfile(final double maxVelocity, final double maxAcceleration) {
+        setMotionProfile(maxVelocity, maxAcceleration, 0.0);
+    }
+
+    /**
+     * Use an S-curve motion profile when moving to presets.
+     * 
+     * Setting the velocity or acceleration to 0 disables the profile.
+     * 
+     * @param maxVelocity     The maximum setpoint velocity.
+     * @param maxAcceleration The maximum setpoint acceleration.
+     * @param maxJerk         The maximum setpoint jerk, or 0 for a trapezoidal
+     *                        profile.
+     */
+    public void setMotionProfile(final double maxVelocity, final double maxAcceleration, final double maxJerk) {
+        profile.setConstraints(maxVelocity, maxAcceleration, maxJerk);
+        profile.reset(getSetpoint());
     }
 
     /**
@@ -49,7 +80,7 @@ public abstract class PresetSubsystem<T extends Enum<?> & DoubleSupplier> extend
      */
     public CommandBase presetCmd(final T value) {
         return new InstantCommand(() -> {
-            setSetpoint(value.getAsDouble());
+            moveTo(value.getAsDouble());
         }, this).withName("Set to " + value.name());
     }
 
@@ -72,14 +103,45 @@ public abstract class PresetSubsystem<T extends Enum<?> & DoubleSupplier> extend
         return sequence("Set to " + value.name(), presetCmd(value), waitForSetpoint());
     }
 
+    @Override
+    public void periodic() {
+        if (!profile.isFinished()) {
+            setSetpoint(profile.calculate(getController().getPeriod()));
+        }
+        super.periodic();
+    }
+
     @Override
     public void safeState() {
-        setSetpoint(getMeasurement());
+        stopAtMeasurement();
     }
 
     @Override
     public void reset() {
-        setSetpoint(getMeasurement());
+        stopAtMeasurement();
+    }
+
+    /**
+     * Move towards a setpoint, along the motion profile if there is one.
+     * 
+     * @param target The setpoint to move to.
+     */
+    private void moveTo(final double target) {
+        if (profile.isEnabled()) {
+            if (profile.isFinished()) {
+                profile.reset(getMeasurement());
+            }
+            profile.setGoal(target);
+        } else {
+            setSetpoint(target);
+        }
+    }
+
+    /** Stop any profiled move and hold the current measurement. */
+    private void stopAtMeasurement() {
+        final double measurement = getMeasurement();
+        profile.reset(measurement);
+        setSetpoint(measurement);
     }
 
 }
@@ -0,0 +1,509 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Runs software control loops from a single {@link Notifier}.
+ *
+ * The notifier ticks at the least common multiple of the loop rates, so that
+ * every loop runs at exactly its own rate every few ticks. If the rates aren't
+ * whole numbers, or the common rate would be faster than
+ * {@link #MAX_TICK_RATE}, it ticks at the rate of the fastest loop instead, and
+ * slower loops run at the nearest rate they can, given by
+ * {@link Loop#getActualRate()}. All loops run on the notifier's thread, in the
+ * order they were registered.
+ *
+ * The shared instance starts its notifier when the first loop is registered.
+ * Other executors only run loops once {@link #start()} is called, so loops can
+ * be run by hand with {@link #tick()} in simulation and tests.
+ *
+ * Loop timing is measured with {@link System#nanoTime()} unless another clock
+ * is given. When ticking by hand, give the clock of the simulation, such as
+ * {@link MotorSim#getNanoTime()}, so that loops see simulated time passing.
+ *
+ * An exception thrown by a loop doesn't stop the other loops. It is reported
+ * to the Driver Station, or the reporter given to {@link #setErrorReporter}, at
+ * most once per {@link #ERROR_REPORT_PERIOD} for each loop, and passed to the
+ * loop's failure handler.
+ */
+public class ControlLoopExecutor {
+
+    /** The fastest the notifier will tick to run every loop at its exact rate, in Hz. */
+    public static final double MAX_TICK_RATE = 5000.0;
+    /** The shortest time between error reports from one loop, in seconds. */
+    public static final double ERROR_REPORT_PERIOD = 1.0;
+
+    /** The shared instance. */
+    private static final ControlLoopExecutor INSTANCE = new ControlLoopExecutor("ControlLoops", true);
+
+    /** The name of the notifier thread. */
+    private final String name;
+    /** Whether registering a loop starts the notifier. */
+    private final boolean autoStart;
+    /** The source of loop times, in ns. */
+    private final LongSupplier clock;
+    /** Where loop failures are reported. */
+    private volatile BiConsumer<String, RuntimeException> errorReporter =
+            (message, error) -> DriverStation.reportError(message, error.getStackTrace());
+    /** The registered loops, in registration order. */
+    private final List<Loop> loops = new CopyOnWriteArrayList<>();
+    /** A copy of {@link #loops} for the notifier thread to iterate. */
+    private volatile Loop[] snapshot = new Loop[0];
+    /** The notifier, if running. */
+    private Notifier notifier;
+    /** The tick period, in seconds. */
+    private double tickPeriod;
+    /** The number of ticks run. */
+    private long tickCount;
+    /** The fraction of the last tick period spent running loops. */
+    private volatile double utilization;
+    /** The largest fraction of a tick period spent running loops. */
+    private volatile double maxUtilization;
+
+    /**
+     * Create an executor with its own notifier.
+     *
+     * Most code should use {@link #getInstance()} so that all loops share one
+     * thread.
+     *
+     * The notifier only runs once {@link #start()} is called.
+     *
+     * @param name The name of the notifier thread.
+     */
+    public ControlLoopExecutor(final String name) {
+        this(name, false);
+    }
+
+    /**
+     * Create an executor with its own notifier.
+     *
+     * @param name      The name of the notifier thread.
+     * @param autoStart Whether registering a loop starts the notifier.
+     */
+    public ControlLoopExecutor(final String name, final boolean autoStart) {
+        this(name, autoStart, System::nanoTime);
+    }
+
+    /**
+     * Create an executor that is ticked by hand against another clock.
+     *
+     * The notifier only runs once {@link #start()} is called.
+     *
+     * @param name  The name of the notifier thread.
+     * @param clock The source of loop times, in ns.
+     */
+    public ControlLoopExecutor(final String name, final LongSupplier clock) {
+        this(name, false, clock);
+    }
+
+    /**
+     * Create an executor with its own notifier.
+     *
+     * @param name      The name of the notifier thread.
+     * @param autoStart Whether registering a loop starts the notifier.
+     * @param clock     The source of loop times, in ns.
+     */
+    public ControlLoopExecutor(final String name, final boolean autoStart, final LongSupplier clock) {
+        this.name = name;
+        this.autoStart = autoStart;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the shared executor.
+     *
+     * @return The executor instance.
+     */
+    public static ControlLoopExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set where loop failures are reported, instead of the Driver Station.
+     *
+     * @param reporter Called with a message and the exception.
+     */
+    public void setErrorReporter(final BiConsumer<String, RuntimeException> reporter) {
+        this.errorReporter = reporter;
+    }
+
+    /**
+     * Register a loop to be run.
+     *
+     * @param loopName The name of the loop, for diagnostics.
+     * @param rate     The rate to run the loop at, in Hz.
+     * @param action   The action to run each period.
+     * @return A handle to the registered loop.
+     */
+    public synchronized Loop register(final String loopName, final double rate, final Runnable action) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Loop rate must be positive");
+        }
+        final Loop loop = new Loop(this, loopName, rate, action);
+        loops.add(loop);
+        snapshot = loops.toArray(new Loop[0]);
+        reschedule();
+        if (autoStart) {
+            start();
+        }
+        return loop;
+    }
+
+    /**
+     * Stop running a loop.
+     *
+     * @param loop The loop to remove.
+     */
+    public synchronized void unregister(final Loop loop) {
+        loops.remove(loop);
+        snapshot = loops.toArray(new Loop[0]);
+        reschedule();
+    }
+
+    /**
+     * Get the registered loops.
+     *
+     * @return An unmodifiable view of the loops.
+     */
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    /** Start running loops, if not already started. */
+    public synchronized void start() {
+        if (notifier == null) {
+            notifier = new Notifier(this::tick);
+            notifier.setName(name);
+            reschedule();
+        }
+    }
+
+    /** Stop running loops. */
+    public synchronized void stop() {
+        if (notifier != null) {
+            notifier.stop();
+            notifier.close();
+            notifier = null;
+        }
+    }
+
+    /**
+     * Check if the loops are being run.
+     *
+     * @return True if running.
+     */
+    public synchronized boolean isRunning() {
+        return notifier != null;
+    }
+
+    /**
+     * Get the tick period.
+     *
+     * @return The period, in seconds, or 0 if there are no loops.
+     */
+    public synchronized double getTickPeriod() {
+        return tickPeriod;
+    }
+
+    /**
+     * Get the fraction of the last tick period spent running loops.
+     *
+     * @return The utilization, where 1.0 is the whole period.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Get the largest fraction of a tick period spent running loops.
+     *
+     * @return The utilization, where 1.0 is the whole period.
+     */
+    public double getMaxUtilization() {
+        return maxUtilization;
+    }
+
+    /** Reset the maximum utilization. */
+    public void resetMaxUtilization() {
+        maxUtilization = 0;
+    }
+
+    /**
+     * Run one tick of the loops.
+     *
+     * This is called by the notifier, but can be called by hand while stopped,
+     * such as in simulation or tests. A loop that throws doesn't stop the other
+     * loops from running, see {@link Loop#getErrorCount()}.
+     */
+    public void tick() {
+        final long start = clock.getAsLong();
+        final long tick = tickCount++;
+        for (final Loop loop : snapshot) {
+            if (loop.enabled && tick % loop.divisor == 0) {
+                loop.run();
+            }
+        }
+        final double period = tickPeriod;
+        if (period > 0) {
+            utilization = (clock.getAsLong() - start) / 1e9 / period;
+            maxUtilization = Math.max(maxUtilization, utilization);
+        }
+    }
+
+    /** Recalculate the tick rate and loop divisors, and restart the notifier. */
+    private void reschedule() {
+        final double tickRate = commonRate();
+        tickPeriod = tickRate > 0 ? 1.0 / tickRate : 0;
+        for (final Loop loop : loops) {
+            loop.divisor = Math.max(1, Math.round(tickRate / loop.rate));
+            loop.timing.setPeriod(loop.divisor * tickPeriod);
+        }
+        if (notifier != null) {
+            notifier.stop();
+            if (tickPeriod > 0) {
+                notifier.startPeriodic(tickPeriod);
+            }
+        }
+    }
+
+    /**
+     * Find the rate to tick at.
+     *
+     * @return The least common multiple of the loop rates if they are whole
+     *         numbers and it isn't too fast, otherwise the fastest loop rate, or
+     *         0 if there are no loops.
+     */
+    private double commonRate() {
+        double fastest = 0;
+        long common = 1;
+        for (final Loop loop : loops) {
+            fastest = Math.max(fastest, loop.rate);
+            final long whole = Math.round(loop.rate);
+            if (common > 0 && whole > 0 && Math.abs(loop.rate - whole) < 1e-6) {
+                common = common / gcd(common, whole) * whole;
+                if (common > MAX_TICK_RATE) {
+                    common = 0;
+                }
+            } else {
+                common = 0;
+            }
+        }
+        return common > 0 ? common : fastest;
+    }
+
+    /**
+     * Find the greatest common divisor of two numbers.
+     *
+     * @param a The first number.
+     * @param b The second number.
+     * @return The greatest common divisor.
+     */
+    private static long gcd(final long a, final long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * A loop being run by the executor.
+     */
+    public static final class Loop {
+        /** The executor running the loop. */
+        private final ControlLoopExecutor owner;
+        /** The loop name. */
+        private final String name;
+        /** The requested rate, in Hz. */
+        private final double rate;
+        /** The action to run. */
+        private final Runnable action;
+        /** The source of loop times, in ns. */
+        private final LongSupplier clock;
+        /** The number of ticks between runs. */
+        private volatile long divisor = 1;
+        /** Whether the loop is running. */
+        private volatile boolean enabled = true;
+        /** Timing statistics for the loop. */
+        private final LoopTiming timing;
+        /** The number of runs that threw an exception. */
+        private long errorCount;
+        /** The last exception thrown by the action. */
+        private RuntimeException lastError;
+        /** Whether an error has been reported. */
+        private boolean hasReported;
+        /** When the last error was reported, in ns. */
+        private long lastReportTime;
+        /** The number of errors since the last report. */
+        private long unreportedErrors;
+        /** Called with each exception thrown by the action, or null. */
+        private volatile Consumer<RuntimeException> failureHandler;
+
+        /**
+         * Create a loop.
+         *
+         * @param owner  The executor running the loop.
+         * @param name   The loop name.
+         * @param rate   The requested rate, in Hz.
+         * @param action The action to run.
+         */
+        private Loop(final ControlLoopExecutor owner, final String name, final double rate,
+                final Runnable action) {
+            this.owner = owner;
+            this.name = name;
+            this.rate = rate;
+            this.action = action;
+            this.clock = owner.clock;
+            this.timing = new LoopTiming(1.0 / rate);
+        }
+
+        /**
+         * Get the loop name.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the requested loop rate.
+         *
+         * @return The rate, in Hz.
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * Get the rate the loop actually runs at.
+         *
+         * This is the requested rate unless it can't be reached from the
+         * executor's tick rate.
+         *
+         * @return The rate, in Hz.
+         */
+        public double getActualRate() {
+            return 1.0 / getTiming().getPeriod();
+        }
+
+        /**
+         * Enable or disable the loop.
+         *
+         * @param enabled True to run the loop.
+         */
+        public void setEnabled(final boolean enabled) {
+            if (enabled && !this.enabled) {
+                timing.restart();
+            }
+            this.enabled = enabled;
+        }
+
+        /**
+         * Check if the loop is enabled.
+         *
+         * @return True if the loop is running.
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * Get how long the last run took.
+         *
+         * @return The execution time, in seconds.
+         */
+        public double getExecutionTime() {
+            return timing.getExecutionTime();
+        }
+
+        /**
+         * Get the timing statistics for the loop.
+         *
+         * During a run, {@link LoopTiming#getLastDt()} is the time since the
+         * previous run.
+         *
+         * @return The timing statistics.
+         */
+        public LoopTiming getTiming() {
+            return timing;
+        }
+
+        /**
+         * Get the number of runs that threw an exception.
+         *
+         * @return The error count.
+         */
+        public synchronized long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Get the last exception thrown by the loop's action.
+         *
+         * @return The exception, or null if the loop has never failed.
+         */
+        public synchronized RuntimeException getLastError() {
+            return lastError;
+        }
+
+        /**
+         * Set what to do when the loop's action throws an exception.
+         *
+         * The handler runs on the executor's thread after each failed run, and
+         * should make the mechanism safe, such as by stopping its motor.
+         *
+         * @param handler The handler, or null for none.
+         */
+        public void setFailureHandler(final Consumer<RuntimeException> handler) {
+            this.failureHandler = handler;
+        }
+
+        /** Run the loop's action, keeping any exception from reaching the other loops. */
+        private void run() {
+            timing.begin(clock.getAsLong());
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                timing.end(clock.getAsLong());
+            }
+        }
+
+        /**
+         * Record, report and handle an exception from the action.
+         *
+         * @param error The exception.
+         */
+        private void fail(final RuntimeException error) {
+            final Consumer<RuntimeException> handler = failureHandler;
+            if (handler != null) {
+                try {
+                    handler.accept(error);
+                } catch (RuntimeException handlerError) {
+                    error.addSuppressed(handlerError);
+                }
+            }
+            final long now = clock.getAsLong();
+            final long missed;
+            synchronized (this) {
+                lastError = error;
+                errorCount++;
+                unreportedErrors++;
+                if (hasReported && now - lastReportTime < (long) (ERROR_REPORT_PERIOD * 1e9)) {
+                    return;
+                }
+                hasReported = true;
+                lastReportTime = now;
+                missed = unreportedErrors;
+                unreportedErrors = 0;
+            }
+            owner.errorReporter.accept("Control loop " + name + " failed " + missed + " time(s): " + error, error);
+        }
+    }
+}
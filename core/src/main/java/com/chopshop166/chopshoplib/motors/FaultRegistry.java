@@ -0,0 +1,108 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of every motor controller with validators.
+ *
+ * Calling {@link #sample()} periodically keeps each controller's cached
+ * validation result fresh, so that code checking for faults does not have to
+ * wait on the validators itself.
+ */
+public final class FaultRegistry {
+
+    /** The shared instance. */
+    private static final FaultRegistry INSTANCE = new FaultRegistry();
+
+    /** The controllers with validators. */
+    private final List<SmartMotorController> controllers = new CopyOnWriteArrayList<>();
+
+    /** Use {@link #getInstance()}. */
+    private FaultRegistry() {
+    }
+
+    /**
+     * Get the shared registry.
+     *
+     * @return The registry instance.
+     */
+    public static FaultRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start tracking a controller, if it isn't already tracked.
+     *
+     * @param controller The controller to track.
+     */
+    /* package */ void register(final SmartMotorController controller) {
+        if (!controllers.contains(controller)) {
+            controllers.add(controller);
+        }
+    }
+
+    /**
+     * Stop tracking a controller.
+     *
+     * @param controller The controller to stop tracking.
+     */
+    public void unregister(final SmartMotorController controller) {
+        controllers.remove(controller);
+    }
+
+    /**
+     * Get the tracked controllers.
+     *
+     * @return An unmodifiable view of the controllers.
+     */
+    public List<SmartMotorController> getControllers() {
+        return Collections.unmodifiableList(controllers);
+    }
+
+    /** Run the validators of every controller that is due to be sampled. */
+    public void sample() {
+        final long now = System.nanoTime();
+        for (final SmartMotorController controller : controllers) {
+            controller.sampleValidators(now);
+        }
+    }
+
+    /**
+     * Check if any controller is faulted.
+     *
+     * @return True if any controller is faulted.
+     */
+    public boolean hasFaults() {
+        for (final SmartMotorController controller : controllers) {
+            if (controller.isFaulted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the controllers that are faulted.
+     *
+     * @return A new list of the faulted controllers.
+     */
+    public List<SmartMotorController> getFaulted() {
+        final List<SmartMotorController> faulted = new ArrayList<>();
+        for (final SmartMotorController controller : controllers) {
+            if (controller.isFaulted()) {
+                faulted.add(controller);
+            }
+        }
+        return faulted;
+    }
+
+    /** Clear latched faults on every controller. */
+    public void clearFaults() {
+        for (final SmartMotorController controller : controllers) {
+            controller.clearFault();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.util.Arrays;
+
+import edu.wpi.first.util.sendable.Sendable;
+import edu.wpi.first.util.sendable.SendableBuilder;
+
+/**
+ * Timing statistics for a periodic loop.
+ *
+ * Records the actual time between runs, how long each run took, and how far
+ * each run was from its nominal period (the jitter). Jitter is kept in a
+ * fixed histogram, so recording never allocates.
+ */
+public final class LoopTiming implements Sendable {
+
+    /** The width of a histogram bucket, in ns. */
+    private static final long BUCKET_NANOS = 10_000L;
+    /** The number of histogram buckets. The last one holds everything larger. */
+    private static final int BUCKETS = 1000;
+
+    /** Counts of absolute jitter, in buckets of {@link #BUCKET_NANOS}. */
+    private final long[] histogram = new long[BUCKETS];
+    /** The nominal period, in ns. */
+    private long periodNanos;
+    /** When the current run started, in ns. */
+    private long lastStart;
+    /** Whether a run has started since the last restart. */
+    private boolean started;
+    /** The time between the last two runs, in seconds. */
+    private double lastDt;
+    /** How long the last run took, in seconds. */
+    private double executionTime;
+    /** The longest a run has taken, in seconds. */
+    private double maxExecutionTime;
+    /** The smallest jitter seen, in seconds. */
+    private double minJitter = Double.NaN;
+    /** The largest jitter seen, in seconds. */
+    private double maxJitter = Double.NaN;
+    /** The number of jitter samples. */
+    private long sampleCount;
+    /** The number of runs that took longer than the period. */
+    private long overrunCount;
+
+    /**
+     * Create the timing statistics.
+     *
+     * @param period The nominal period, in seconds.
+     */
+    public LoopTiming(final double period) {
+        setPeriod(period);
+        lastDt = period;
+    }
+
+    /**
+     * Set the nominal period.
+     *
+     * @param period The period, in seconds.
+     */
+    public synchronized void setPeriod(final double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Loop period must be positive");
+        }
+        periodNanos = (long) (period * 1e9);
+    }
+
+    /**
+     * Get the nominal period.
+     *
+     * @return The period, in seconds.
+     */
+    public synchronized double getPeriod() {
+        return periodNanos / 1e9;
+    }
+
+    /**
+     * Record the start of a run.
+     *
+     * The first run after a restart uses the nominal period as its dt, and is
+     * not counted as jitter.
+     *
+     * @param now The current time, in ns.
+     */
+    public synchronized void begin(final long now) {
+        if (started) {
+            final long dtNanos = now - lastStart;
+            lastDt = dtNanos / 1e9;
+            final long jitterNanos = dtNanos - periodNanos;
+            final double jitter = jitterNanos / 1e9;
+            if (sampleCount == 0) {
+                minJitter = jitter;
+                maxJitter = jitter;
+            } else {
+                minJitter = Math.min(minJitter, jitter);
+                maxJitter = Math.max(maxJitter, jitter);
+            }
+            histogram[(int) Math.min(Math.abs(jitterNanos) / BUCKET_NANOS, BUCKETS - 1)]++;
+            sampleCount++;
+        } else {
+            lastDt = periodNanos / 1e9;
+            started = true;
+        }
+        lastStart = now;
+    }
+
+    /**
+     * Record the end of a run.
+     *
+     * @param now The current time, in ns.
+     */
+    public synchronized void end(final long now) {
+        final long elapsed = now - lastStart;
+        executionTime = elapsed / 1e9;
+        maxExecutionTime = Math.max(maxExecutionTime, executionTime);
+        if (elapsed > periodNanos) {
+            overrunCount++;
+        }
+    }
+
+    /**
+     * Forget the last run, so that the next dt is the nominal period.
+     *
+     * Use this when a loop is resumed after being paused.
+     */
+    public synchronized void restart() {
+        started = false;
+    }
+
+    /** Clear all statistics. */
+    public synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        started = false;
+        lastDt = periodNanos / 1e9;
+        executionTime = 0;
+        maxExecutionTime = 0;
+        minJitter = Double.NaN;
+        maxJitter = Double.NaN;
+        sampleCount = 0;
+        overrunCount = 0;
+    }
+
+    /**
+     * Get the actual time between the last two runs.
+     *
+     * @return The dt, in seconds.
+     */
+    public synchronized double getLastDt() {
+        return lastDt;
+    }
+
+    /**
+     * Get how long the last run took.
+     *
+     * @return The execution time, in seconds.
+     */
+    public synchronized double getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Get the longest a run has taken.
+     *
+     * @return The execution time, in seconds.
+     */
+    public synchronized double getMaxExecutionTime() {
+        return maxExecutionTime;
+    }
+
+    /**
+     * Get the smallest jitter seen. Runs that came early have negative jitter.
+     *
+     * @return The jitter, in seconds, or NaN if there are no samples.
+     */
+    public synchronized double getMinJitter() {
+        return minJitter;
+    }
+
+    /**
+     * Get the largest jitter seen.
+     *
+     * @return The jitter, in seconds, or NaN if there are no samples.
+     */
+    public synchronized double getMaxJitter() {
+        return maxJitter;
+    }
+
+    /**
+     * Get a percentile of the absolute jitter.
+     *
+     * The result is the upper edge of the histogram bucket containing the
+     * percentile, so it is accurate to 10 us.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The jitter, in seconds, or NaN if there are no samples.
+     */
+    public synchronized double getJitterPercentile(final double percentile) {
+        if (sampleCount == 0) {
+            return Double.NaN;
+        }
+        final long target = (long) Math.ceil(sampleCount * Math.min(Math.max(percentile, 0), 100) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                return (i + 1) * BUCKET_NANOS / 1e9;
+            }
+        }
+        return BUCKETS * BUCKET_NANOS / 1e9;
+    }
+
+    /**
+     * Get the 99th percentile of the absolute jitter.
+     *
+     * @return The jitter, in seconds, or NaN if there are no samples.
+     */
+    public double getP99Jitter() {
+        return getJitterPercentile(99);
+    }
+
+    /**
+     * Get the number of runs that took longer than the period.
+     *
+     * @return The overrun count.
+     */
+    public synchronized long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Get the number of jitter samples recorded.
+     *
+     * @return The sample count.
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public void initSendable(final SendableBuilder builder) {
+        builder.addDoubleProperty("Loop dt", this::getLastDt, null);
+        builder.addDoubleProperty("Loop Execution Time", this::getExecutionTime, null);
+        builder.addDoubleProperty("Loop Max Execution Time", this::getMaxExecutionTime, null);
+        builder.addDoubleProperty("Loop Min Jitter", this::getMinJitter, null);
+        builder.addDoubleProperty("Loop Max Jitter", this::getMaxJitter, null);
+        builder.addDoubleProperty("Loop P99 Jitter", this::getP99Jitter, null);
+        builder.addDoubleProperty("Loop Overruns", this::getOverrunCount, null);
+    }
+}
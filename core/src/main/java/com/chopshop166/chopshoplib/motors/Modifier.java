@@ -3,9 +3,9 @@ package com.chopshop166.chopshoplib.motors;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoublePredicate;
 import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
 
-import com.chopshop166.chopshoplib.SampleBuffer;
-import com.google.common.math.Stats;
+import com.chopshop166.chopshoplib.DoubleSampleBuffer;
 
 /**
  * A function from double to double, converting and limiting speeds.
@@ -13,6 +13,14 @@ import com.google.common.math.Stats;
 @FunctionalInterface
 public interface Modifier extends DoubleUnaryOperator {
 
+    /**
+     * The longest time between calls that time-aware modifiers use, in seconds.
+     *
+     * A longer gap, such as after the robot was disabled, counts as this long so
+     * that the output can't jump to a new input.
+     */
+    double MAX_TIME_STEP = 0.1;
+
     /**
      * Modifier to prevent going above a certain value.
      * 
@@ -53,12 +61,232 @@ public interface Modifier extends DoubleUnaryOperator {
         return new Modifier() {
 
             /** The samples to average. */
-            private SampleBuffer<Double> buffer = new SampleBuffer<>(numSamples);
+            private final DoubleSampleBuffer buffer = new DoubleSampleBuffer(numSamples);
 
             @Override
             public double applyAsDouble(final double speed) {
                 buffer.add(speed);
-                return Stats.of(buffer).mean();
+                return buffer.mean();
+            }
+        };
+    }
+
+    /**
+     * Modifier to smooth the speed with an exponential moving average.
+     * 
+     * @param alpha The weight of each new sample, between 0 and 1.
+     * @return The smoothed speed.
+     */
+    static Modifier exponentialAverage(final double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        return new Modifier() {
+
+            /** Whether a sample has been seen. */
+            private boolean started;
+            /** The current average. */
+            private double average;
+
+            @Override
+            public double applyAsDouble(final double speed) {
+                if (started) {
+                    average += alpha * (speed - average);
+                } else {
+                    average = speed;
+                    started = true;
+                }
+                return average;
+            }
+        };
+    }
+
+    /**
+     * Modifier to limit how much the speed changes per call.
+     * 
+     * @param maxChange The largest change allowed per call, which must be
+     *                  positive.
+     * @return The limited speed.
+     */
+    static Modifier slewLimit(final double maxChange) {
+        if (maxChange <= 0) {
+            throw new IllegalArgumentException("Max change must be positive");
+        }
+        return new Modifier() {
+
+            /** The last speed returned. */
+            private double last;
+
+            @Override
+            public double applyAsDouble(final double speed) {
+                last += Math.max(-maxChange, Math.min(maxChange, speed - last));
+                return last;
+            }
+        };
+    }
+
+    /**
+     * Modifier to limit how fast the speed changes over time.
+     * 
+     * @param maxRate The largest change allowed per second.
+     * @return The limited speed.
+     */
+    static Modifier rateLimit(final double maxRate) {
+        return rateLimit(maxRate, System::nanoTime);
+    }
+
+    /**
+     * Modifier to limit how fast the speed changes over time.
+     * 
+     * The output starts at zero, and the first call only starts the clock. The
+     * time between calls is limited to {@link #MAX_TIME_STEP}.
+     * 
+     * @param maxRate The largest change allowed per second, which must be
+     *                positive.
+     * @param clock   The time source, in nanoseconds.
+     * @return The limited speed.
+     */
+    static Modifier rateLimit(final double maxRate, final LongSupplier clock) {
+        if (maxRate <= 0) {
+            throw new IllegalArgumentException("Max rate must be positive");
+        }
+        return new Modifier() {
+
+            /** Whether the clock has started. */
+            private boolean started;
+            /** The time of the last call, in nanoseconds. */
+            private long lastTime;
+            /** The last speed returned. */
+            private double last;
+
+            @Override
+            public double applyAsDouble(final double speed) {
+                final long now = clock.getAsLong();
+                final double maxChange = started ? maxRate * timeStep(lastTime, now) : 0;
+                started = true;
+                lastTime = now;
+                last += Math.max(-maxChange, Math.min(maxChange, speed - last));
+                return last;
+            }
+        };
+    }
+
+    /**
+     * Modifier to limit how fast the speed and its rate of change change over
+     * time.
+     * 
+     * @param maxRate  The largest change allowed per second.
+     * @param maxAccel The largest change in rate allowed per second.
+     * @return The limited speed.
+     */
+    static Modifier jerkLimit(final double maxRate, final double maxAccel) {
+        return jerkLimit(maxRate, maxAccel, System::nanoTime);
+    }
+
+    /**
+     * Modifier to limit how fast the speed and its rate of change change over
+     * time.
+     * 
+     * The rate is slowed ahead of the target so the output does not overshoot.
+     * The output starts at zero, and the first call only starts the clock. The
+     * time between calls is limited to {@link #MAX_TIME_STEP}.
+     * 
+     * @param maxRate  The largest change allowed per second, which must be
+     *                 positive.
+     * @param maxAccel The largest change in rate allowed per second, which must
+     *                 be positive.
+     * @param clock    The time source, in nanoseconds.
+     * @return The limited speed.
+     */
+    static Modifier jerkLimit(final double maxRate, final double maxAccel, final LongSupplier clock) {
+        if (maxRate <= 0 || maxAccel <= 0) {
+            throw new IllegalArgumentException("Max rate and acceleration must be positive");
+        }
+        return new Modifier() {
+
+            /** Whether the clock has started. */
+            private boolean started;
+            /** The time of the last call, in nanoseconds. */
+            private long lastTime;
+            /** The last speed returned. */
+            private double last;
+            /** The current rate of change, per second. */
+            private double rate;
+
+            @Override
+            public double applyAsDouble(final double speed) {
+                final long now = clock.getAsLong();
+                final double dt = started ? timeStep(lastTime, now) : 0;
+                started = true;
+                lastTime = now;
+                if (dt <= 0) {
+                    return last;
+                }
+                final double error = speed - last;
+                final double brakingRate = Math.sqrt(2 * maxAccel * Math.abs(error));
+                final double wanted = Math.copySign(Math.min(maxRate, Math.min(brakingRate, Math.abs(error) / dt)),
+                        error);
+                final double maxDelta = maxAccel * dt;
+                rate += Math.max(-maxDelta, Math.min(maxDelta, wanted - rate));
+                final double next = last + rate * dt;
+                if ((speed - next) * error <= 0) {
+                    // Don't go past the target
+                    last = speed;
+                    rate = 0;
+                } else {
+                    last = next;
+                }
+                return last;
+            }
+        };
+    }
+
+    /**
+     * Modifier to smooth the speed with a time constant.
+     * 
+     * @param timeConstant The time for the output to move 63% of the way to a new
+     *                     input, in seconds.
+     * @return The smoothed speed.
+     */
+    static Modifier lowPass(final double timeConstant) {
+        return lowPass(timeConstant, System::nanoTime);
+    }
+
+    /**
+     * Modifier to smooth the speed with a time constant.
+     * 
+     * The output starts at the first input.
+     * 
+     * @param timeConstant The time for the output to move 63% of the way to a new
+     *                     input, in seconds.
+     * @param clock        The time source, in nanoseconds.
+     * @return The smoothed speed.
+     */
+    static Modifier lowPass(final double timeConstant, final LongSupplier clock) {
+        if (timeConstant <= 0) {
+            throw new IllegalArgumentException("Time constant must be positive");
+        }
+        return new Modifier() {
+
+            /** Whether a sample has been seen. */
+            private boolean started;
+            /** The time of the last call, in nanoseconds. */
+            private long lastTime;
+            /** The current average. */
+            private double average;
+
+            @Override
+            public double applyAsDouble(final double speed) {
+                final long now = clock.getAsLong();
+                if (started) {
+                    final double dt = Math.max(0, (now - lastTime) / 1e9);
+                    average += (1 - Math.exp(-dt / timeConstant)) * (speed - average);
+                } else {
+                    average = speed;
+                    started = true;
+                }
+                lastTime = now;
+                return average;
             }
         };
     }
@@ -105,4 +333,15 @@ public interface Modifier extends DoubleUnaryOperator {
     static Modifier unless(final BooleanSupplier condition) {
         return speed -> condition.getAsBoolean() ? 0.0 : speed;
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the time between two calls, limited to {@link #MAX_TIME_STEP}.
+     *
+     * @param lastTime The time of the last call, in nanoseconds.
+     * @param now      The time of this call, in nanoseconds.
+     * @return The time step, in seconds.
+     */
+    private static double timeStep(final long lastTime, final long now) {
+        return Math.max(0, Math.min(MAX_TIME_STEP, (now - lastTime) / 1e9));
+    }
+}
@@ -8,11 +8,16 @@ import java.util.function.DoubleUnaryOperator;
 
 /**
  * A group of {@link Modifier} objects.
+ *
+ * The modifiers are copied into an array the first time the group is run after
+ * a change, so running the group does not allocate.
  */
 public class ModifierGroup implements DoubleUnaryOperator {
 
     /** The actual modifier list. */
     private final List<DoubleUnaryOperator> modifiers = new ArrayList<>();
+    /** The modifiers to run, or null if they need to be copied again. */
+    private DoubleUnaryOperator[] compiled;
 
     /**
      * Create group with modifiers.
@@ -30,9 +35,14 @@ public class ModifierGroup implements DoubleUnaryOperator {
      * @return The new speed.
      */
     public double run(final double rawSpeed) {
+        DoubleUnaryOperator[] chain = compiled;
+        if (chain == null) {
+            chain = modifiers.toArray(new DoubleUnaryOperator[0]);
+            compiled = chain;
+        }
         double speed = rawSpeed;
-        for (final DoubleUnaryOperator m : modifiers) {
-            speed = m.applyAsDouble(speed);
+        for (int i = 0; i < chain.length; i++) {
+            speed = chain[i].applyAsDouble(speed);
         }
         return speed;
     }
@@ -54,6 +64,7 @@ public class ModifierGroup implements DoubleUnaryOperator {
     public void add(final Modifier m, final Modifier... ms) {
         modifiers.add(m);
         modifiers.addAll(Arrays.asList(ms));
+        compiled = null;
     }
 
     /**
@@ -63,6 +74,7 @@ public class ModifierGroup implements DoubleUnaryOperator {
      */
     public void addAll(final Collection<? extends Modifier> ms) {
         modifiers.addAll(ms);
+        compiled = null;
     }
 
     /**
@@ -70,5 +82,6 @@ public class ModifierGroup implements DoubleUnaryOperator {
      */
     public void clear() {
         modifiers.clear();
+        compiled = null;
     }
 }
\ No newline at end of file
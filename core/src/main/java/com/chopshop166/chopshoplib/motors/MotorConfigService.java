@@ -0,0 +1,322 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Applies motor controller configuration on a background thread.
+ *
+ * Settings are grouped into batches per device and applied in the order they
+ * were submitted. Each setting is named, and is skipped if the device already
+ * has that value from an earlier batch. Failed settings are retried, and each
+ * batch completes a future once it is done.
+ */
+public final class MotorConfigService {
+
+    /** How long each vendor call may wait for a response, in ms. */
+    public static final int DEFAULT_TIMEOUT_MS = 50;
+    /** How many times to try each setting. */
+    public static final int DEFAULT_ATTEMPTS = 3;
+
+    /** The shared instance. */
+    private static final MotorConfigService INSTANCE = new MotorConfigService("MotorConfig");
+
+    /** The name of the configuration thread. */
+    private final String name;
+    /** Batches waiting to be applied. */
+    private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+    /** The future of the last batch submitted for each device. */
+    private final Map<Object, CompletableFuture<Void>> latest = new ConcurrentHashMap<>();
+    /** The last value applied for each setting, per device. Only used by the thread. */
+    private final Map<Object, Map<String, Object>> applied = new IdentityHashMap<>();
+    /** The configuration thread, if running. */
+    private Thread thread;
+    /** How long each vendor call may wait for a response, in ms. */
+    private volatile int timeoutMs = DEFAULT_TIMEOUT_MS;
+    /** How many times to try each setting. */
+    private volatile int attempts = DEFAULT_ATTEMPTS;
+
+    /**
+     * Create a service with its own thread.
+     *
+     * Most code should use {@link #getInstance()} so that all devices share one
+     * thread.
+     *
+     * @param name The name of the configuration thread.
+     */
+    public MotorConfigService(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the shared service.
+     *
+     * @return The service instance.
+     */
+    public static MotorConfigService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set how long each vendor call may wait for a response.
+     *
+     * @param timeoutMs The timeout, in ms.
+     */
+    public void setTimeout(final int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Set how many times to try each setting before giving up.
+     *
+     * @param attempts The number of attempts.
+     */
+    public void setAttempts(final int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("Must try each setting at least once");
+        }
+        this.attempts = attempts;
+    }
+
+    /**
+     * Start a batch of settings for a device.
+     *
+     * @param device The device being configured.
+     * @return The batch, which must be submitted.
+     */
+    public Batch configure(final Object device) {
+        return new Batch(device);
+    }
+
+    /**
+     * Get a future that completes once everything submitted for a device so far
+     * has been applied.
+     *
+     * @param device The device.
+     * @return The future of the last batch, or a completed future if none.
+     */
+    public CompletableFuture<Void> whenConfigured(final Object device) {
+        return latest.getOrDefault(device, CompletableFuture.completedFuture(null));
+    }
+
+    /** Start the configuration thread, if it isn't already running. */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::run);
+            thread.setName(name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Stop the configuration thread once the current batch is done. */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /** Loop used by the configuration thread. */
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                apply(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Apply a batch, skipping settings that are already applied.
+     *
+     * If a setting that replaces everything fails, nothing is known about the
+     * device any more, so the assumed values after it are ignored.
+     *
+     * @param batch The batch to apply.
+     */
+    private void apply(final Batch batch) {
+        final Map<String, Object> values = applied.computeIfAbsent(batch.device, d -> new HashMap<>());
+        final List<String> failed = new ArrayList<>();
+        boolean replaceFailed = false;
+        for (final Setting setting : batch.settings) {
+            if (setting.writer == null) {
+                if (!replaceFailed) {
+                    values.put(setting.name, setting.value);
+                }
+            } else if (setting.replacesAll || !values.containsKey(setting.name)
+                    || !Objects.equals(values.get(setting.name), setting.value)) {
+                if (write(setting)) {
+                    if (setting.replacesAll) {
+                        values.clear();
+                    }
+                    values.put(setting.name, setting.value);
+                } else {
+                    if (setting.replacesAll) {
+                        values.clear();
+                        replaceFailed = true;
+                    } else {
+                        values.remove(setting.name);
+                    }
+                    failed.add(setting.name);
+                }
+            }
+        }
+        if (failed.isEmpty()) {
+            batch.future.complete(null);
+        } else {
+            batch.future.completeExceptionally(new IllegalStateException("Failed to apply " + failed));
+        }
+    }
+
+    /**
+     * Write a setting, retrying if it fails.
+     *
+     * @param setting The setting to write.
+     * @return True if it was written.
+     */
+    private boolean write(final Setting setting) {
+        for (int i = 0; i < attempts; i++) {
+            try {
+                if (setting.writer.write(timeoutMs)) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // Treat an exception like any other failure
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes a setting to a device.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        /**
+         * Write the setting.
+         *
+         * @param timeoutMs How long to wait for a response, in ms.
+         * @return True if the setting was applied.
+         */
+        boolean write(int timeoutMs);
+    }
+
+    /** A single named setting. */
+    private static final class Setting {
+        /** The setting name. */
+        private final String name;
+        /** The value, used to detect changes. */
+        private final Object value;
+        /** How to write the setting, or null if it is already applied. */
+        private final Writer writer;
+        /** Whether writing this setting changes every other setting. */
+        private final boolean replacesAll;
+
+        /**
+         * Create a setting.
+         *
+         * @param name        The setting name.
+         * @param value       The value, used to detect changes.
+         * @param writer      How to write the setting, or null.
+         * @param replacesAll Whether writing this changes every other setting.
+         */
+        private Setting(final String name, final Object value, final Writer writer, final boolean replacesAll) {
+            this.name = name;
+            this.value = value;
+            this.writer = writer;
+            this.replacesAll = replacesAll;
+        }
+    }
+
+    /**
+     * A group of settings for one device.
+     */
+    public final class Batch {
+        /** The device being configured. */
+        private final Object device;
+        /** The settings, in order. */
+        private final List<Setting> settings = new ArrayList<>();
+        /** Completed once the batch is applied. */
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /**
+         * Create a batch.
+         *
+         * @param device The device being configured.
+         */
+        private Batch(final Object device) {
+            this.device = device;
+        }
+
+        /**
+         * Add a setting, which is skipped if the device already has the value.
+         *
+         * @param settingName The setting name, unique for the device.
+         * @param value       The value, compared with equals().
+         * @param writer      How to write the setting.
+         * @return This batch.
+         */
+        public Batch set(final String settingName, final Object value, final Writer writer) {
+            settings.add(new Setting(settingName, value, writer, false));
+            return this;
+        }
+
+        /**
+         * Add a setting that replaces every other setting, such as writing a whole
+         * configuration. It is always written.
+         *
+         * @param settingName The setting name, unique for the device.
+         * @param value       The value.
+         * @param writer      How to write the setting.
+         * @return This batch.
+         */
+        public Batch replaceAll(final String settingName, final Object value, final Writer writer) {
+            settings.add(new Setting(settingName, value, writer, true));
+            return this;
+        }
+
+        /**
+         * Record that the device already has a value, without writing it.
+         *
+         * Use this after {@link #replaceAll} for values that were part of it. If
+         * that fails, the value is not recorded.
+         *
+         * @param settingName The setting name.
+         * @param value       The value the device has.
+         * @return This batch.
+         */
+        public Batch assume(final String settingName, final Object value) {
+            settings.add(new Setting(settingName, value, null, false));
+            return this;
+        }
+
+        /**
+         * Queue the batch to be applied.
+         *
+         * @return A future that completes once the batch is applied, or fails if
+         *         any setting could not be applied.
+         */
+        public CompletableFuture<Void> submit() {
+            latest.put(device, future);
+            queue.add(this);
+            start();
+            return future;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.util.Arrays;
+
+import com.chopshop166.chopshoplib.sensors.IEncoder;
+import com.chopshop166.chopshoplib.sensors.MockEncoder;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ * Simulates DC motors driving mock encoders.
+ *
+ * Each plant reads the output of a motor controller, applies it to a DC motor
+ * through a gearbox into an inertia, and moves a {@link MockEncoder} by how far
+ * the output shaft turned. Plants are only stepped when {@link #step} is
+ * called, so the simulation is deterministic and can run faster than real
+ * time. The state of every plant is kept in flat arrays, and each step uses
+ * the exact solution of the motor equations, so large steps stay stable.
+ *
+ * To close the loop around software PID, tick a {@link ControlLoopExecutor}
+ * that uses {@link #getNanoTime()} as its clock before each step, so the
+ * controllers see the simulated time between runs.
+ */
+public final class MotorSim {
+
+    /** The default battery voltage. */
+    public static final double DEFAULT_BUS_VOLTAGE = 12.0;
+
+    /** The shared instance. */
+    private static final MotorSim INSTANCE = new MotorSim();
+
+    /** The motor controller driving each plant. */
+    private MotorController[] motors = new MotorController[4];
+    /** The encoder of each plant. */
+    private MockEncoder[] encoders = new MockEncoder[4];
+    /** Acceleration per volt of each plant, in rad/s^2/V. */
+    private double[] voltGain = new double[4];
+    /** Deceleration per unit of speed from back EMF of each plant, in 1/s. */
+    private double[] damping = new double[4];
+    /** The gear ratio of each plant. */
+    private double[] gearing = new double[4];
+    /** The back EMF constant of each plant's motor, in rad/s/V. */
+    private double[] kv = new double[4];
+    /** The winding resistance of each plant's motor, in ohms. */
+    private double[] resistance = new double[4];
+    /** The encoder distance per output revolution of each plant. */
+    private double[] distancePerRev = new double[4];
+    /** The output position of each plant, in radians. */
+    private double[] position = new double[4];
+    /** The output velocity of each plant, in rad/s. */
+    private double[] velocity = new double[4];
+    /** The current drawn by each plant, in amps. */
+    private double[] current = new double[4];
+    /** The velocity decay of each plant over one step of {@link #cachedDt}. */
+    private double[] decay = new double[4];
+    /** The step length the decays were calculated for, in seconds. */
+    private double cachedDt = Double.NaN;
+    /** The number of plants. */
+    private int size;
+    /** The battery voltage. */
+    private double busVoltage = DEFAULT_BUS_VOLTAGE;
+    /** The simulation time, in nanoseconds. */
+    private long nanos;
+
+    /**
+     * Create a simulation.
+     *
+     * Most code should use {@link #getInstance()} so that all plants share one
+     * clock.
+     */
+    public MotorSim() {
+        super();
+    }
+
+    /**
+     * Get the shared simulation.
+     *
+     * @return The simulation instance.
+     */
+    public static MotorSim getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a plant driven by a controller with a mock encoder.
+     *
+     * @param controller The controller, whose encoder must be a
+     *                   {@link MockEncoder}.
+     * @param motor      The motors in the gearbox.
+     * @param gearing    The gear reduction from the motor to the output.
+     * @param inertia    The moment of inertia at the output, in kg m^2.
+     * @return The plant.
+     */
+    public Plant add(final SmartMotorController controller, final DCMotor motor, final double gearing,
+            final double inertia) {
+        final IEncoder encoder = controller.getEncoder();
+        if (!(encoder instanceof MockEncoder)) {
+            throw new IllegalArgumentException("Simulated controllers need a MockEncoder");
+        }
+        return add(controller, (MockEncoder) encoder, motor, gearing, inertia);
+    }
+
+    /**
+     * Add a plant.
+     *
+     * @param controller The motor controller to read the output from.
+     * @param encoder    The encoder to move.
+     * @param motor      The motors in the gearbox.
+     * @param gearing    The gear reduction from the motor to the output.
+     * @param inertia    The moment of inertia at the output, in kg m^2.
+     * @return The plant.
+     */
+    public Plant add(final MotorController controller, final MockEncoder encoder, final DCMotor motor,
+            final double gearing, final double inertia) {
+        if (gearing <= 0 || inertia <= 0) {
+            throw new IllegalArgumentException("Gearing and inertia must be positive");
+        }
+        if (size == motors.length) {
+            grow();
+        }
+        final int index = size;
+        motors[index] = controller;
+        encoders[index] = encoder;
+        voltGain[index] = gearing * motor.KtNMPerAmp / (motor.rOhms * inertia);
+        damping[index] = voltGain[index] * gearing / motor.KvRadPerSecPerVolt;
+        this.gearing[index] = gearing;
+        kv[index] = motor.KvRadPerSecPerVolt;
+        resistance[index] = motor.rOhms;
+        distancePerRev[index] = 1.0;
+        cachedDt = Double.NaN;
+        size++;
+        return new Plant(index);
+    }
+
+    /**
+     * Get the number of plants.
+     *
+     * @return The number of plants.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set the battery voltage.
+     *
+     * @param volts The battery voltage.
+     */
+    public void setBusVoltage(final double volts) {
+        this.busVoltage = volts;
+    }
+
+    /**
+     * Advance the clock and every plant by one step.
+     *
+     * @param dt The step length, in seconds.
+     */
+    public void step(final double dt) {
+        step(dt, 1);
+    }
+
+    /**
+     * Advance the clock and every plant by several steps.
+     *
+     * The motor outputs are read again before each step.
+     *
+     * @param dt    The step length, in seconds.
+     * @param count The number of steps.
+     */
+    public void step(final double dt, final int count) {
+        if (dt != cachedDt) {
+            for (int i = 0; i < size; i++) {
+                decay[i] = Math.exp(-damping[i] * dt);
+            }
+            cachedDt = dt;
+        }
+        final long stepNanos = Math.round(dt * 1e9);
+        for (int n = 0; n < count; n++) {
+            for (int i = 0; i < size; i++) {
+                final double volts = Math.max(-1.0, Math.min(1.0, motors[i].get())) * busVoltage;
+                final double freeSpeed = voltGain[i] * volts / damping[i];
+                final double offset = velocity[i] - freeSpeed;
+                final double moved = freeSpeed * dt + offset * (1 - decay[i]) / damping[i];
+                position[i] += moved;
+                velocity[i] = freeSpeed + offset * decay[i];
+                current[i] = (volts - gearing[i] * velocity[i] / kv[i]) / resistance[i];
+                final double scale = distancePerRev[i] / (2 * Math.PI);
+                final MockEncoder encoder = encoders[i];
+                encoder.setDistance(encoder.getDistance() + moved * scale);
+                encoder.setRate(velocity[i] * scale);
+            }
+            nanos += stepNanos;
+        }
+    }
+
+    /**
+     * Get the simulation time.
+     *
+     * @return The time, in seconds.
+     */
+    public double getTime() {
+        return nanos / 1e9;
+    }
+
+    /**
+     * Get the simulation time, for use as a clock.
+     *
+     * @return The time, in nanoseconds.
+     */
+    public long getNanoTime() {
+        return nanos;
+    }
+
+    /** Stop every plant and reset the clock to zero. */
+    public void reset() {
+        Arrays.fill(position, 0, size, 0.0);
+        Arrays.fill(velocity, 0, size, 0.0);
+        Arrays.fill(current, 0, size, 0.0);
+        nanos = 0;
+    }
+
+    /** Double the space for plants. */
+    private void grow() {
+        final int capacity = motors.length * 2;
+        motors = Arrays.copyOf(motors, capacity);
+        encoders = Arrays.copyOf(encoders, capacity);
+        voltGain = Arrays.copyOf(voltGain, capacity);
+        damping = Arrays.copyOf(damping, capacity);
+        gearing = Arrays.copyOf(gearing, capacity);
+        kv = Arrays.copyOf(kv, capacity);
+        resistance = Arrays.copyOf(resistance, capacity);
+        distancePerRev = Arrays.copyOf(distancePerRev, capacity);
+        position = Arrays.copyOf(position, capacity);
+        velocity = Arrays.copyOf(velocity, capacity);
+        current = Arrays.copyOf(current, capacity);
+        decay = Arrays.copyOf(decay, capacity);
+    }
+
+    /**
+     * A handle to one simulated plant.
+     */
+    public final class Plant {
+        /** The index of the plant's state. */
+        private final int index;
+
+        /**
+         * Create the handle.
+         *
+         * @param index The index of the plant's state.
+         */
+        private Plant(final int index) {
+            this.index = index;
+        }
+
+        /**
+         * Set the encoder distance per revolution of the output.
+         *
+         * @param distance The distance per revolution.
+         * @return This plant.
+         */
+        public Plant setDistancePerRevolution(final double distance) {
+            distancePerRev[index] = distance;
+            return this;
+        }
+
+        /**
+         * Get the output position.
+         *
+         * @return The position, in radians.
+         */
+        public double getPosition() {
+            return position[index];
+        }
+
+        /**
+         * Get the output velocity.
+         *
+         * @return The velocity, in rad/s.
+         */
+        public double getVelocity() {
+            return velocity[index];
+        }
+
+        /**
+         * Get the current drawn in the last step.
+         *
+         * @return The current, in amps.
+         */
+        public double getCurrent() {
+            return current[index];
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.chopshop166.chopshoplib.motors;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.chopshop166.chopshoplib.sensors.SparkMaxEncoder;
+import com.chopshop166.chopshoplib.states.PIDValues;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.REVLibError;
 import com.revrobotics.SparkMaxPIDController;
 
 import edu.wpi.first.util.sendable.SendableBuilder;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
 
 /**
  * PIDSpeedController
@@ -70,6 +76,37 @@ public class PIDSparkMax extends SmartMotorController {
         return sparkPID;
     }
 
+    /**
+     * Set the PID gains for a slot in the background.
+     *
+     * Gains that the Spark MAX already has are not sent again.
+     *
+     * @param slotId The PID slot to configure.
+     * @param values The gains to use.
+     * @return A future that completes once the gains are applied.
+     */
+    public CompletableFuture<Void> configurePID(final int slotId, final PIDValues values) {
+        final String prefix = "slot" + slotId + ".";
+        return MotorConfigService.getInstance().configure(this)
+                .set(prefix + "p", values.p, ms -> sparkPID.setP(values.p, slotId) == REVLibError.kOk)
+                .set(prefix + "i", values.i, ms -> sparkPID.setI(values.i, slotId) == REVLibError.kOk)
+                .set(prefix + "d", values.d, ms -> sparkPID.setD(values.d, slotId) == REVLibError.kOk)
+                .set(prefix + "ff", values.ff, ms -> sparkPID.setFF(values.ff, slotId) == REVLibError.kOk)
+                .submit();
+    }
+
+    /**
+     * Set the smart current limit in the background.
+     *
+     * @param limit The current limit, in amps.
+     * @return A future that completes once the limit is applied.
+     */
+    public CompletableFuture<Void> configureCurrentLimit(final int limit) {
+        return MotorConfigService.getInstance().configure(this)
+                .set("smartCurrentLimit", limit, ms -> sparkMax.setSmartCurrentLimit(limit) == REVLibError.kOk)
+                .submit();
+    }
+
     /**
      * Add a validator to make sure that the current is below a provided limit.
      * 
@@ -79,6 +116,39 @@ public class PIDSparkMax extends SmartMotorController {
         addValidator(() -> sparkMax.getOutputCurrent() < limit);
     }
 
+    /**
+     * Set how often the Spark MAX sends its status frames.
+     *
+     * Velocity, current and temperature share a frame, so that frame uses the
+     * shorter of the velocity and diagnostics periods. The encoder's update
+     * periods are only changed if every frame was accepted.
+     *
+     * @param profile The telemetry profile to use.
+     * @return The first error from the Spark MAX, or kOk.
+     */
+    public REVLibError setTelemetryProfile(final TelemetryProfile profile) {
+        final int velocityPeriod = Math.min(profile.getVelocityPeriod(), profile.getDiagnosticsPeriod());
+        REVLibError result = sparkMax.setPeriodicFramePeriod(PeriodicFrame.kStatus0, profile.getGeneralPeriod());
+        result = firstError(result, sparkMax.setPeriodicFramePeriod(PeriodicFrame.kStatus1, velocityPeriod));
+        result = firstError(result,
+                sparkMax.setPeriodicFramePeriod(PeriodicFrame.kStatus2, profile.getPositionPeriod()));
+        if (result == REVLibError.kOk) {
+            getEncoder().setUpdatePeriods(profile.getPositionPeriod() / 1000.0, velocityPeriod / 1000.0);
+        }
+        return result;
+    }
+
+    /**
+     * Keep the first error of a series of calls.
+     *
+     * @param first The result so far.
+     * @param next  The result of the next call.
+     * @return The first result that wasn't kOk, or kOk.
+     */
+    private static REVLibError firstError(final REVLibError first, final REVLibError next) {
+        return first == REVLibError.kOk ? next : first;
+    }
+
     /**
      * Set the control type.
      *
@@ -119,7 +189,9 @@ public class PIDSparkMax extends SmartMotorController {
 
     @Override
     public void setSetpoint(final double setPoint) {
-        sparkPID.setReference(setPoint, savedControlType, pidSlot);
+        if (shouldWrite(setPoint, savedControlType, pidSlot)) {
+            sparkPID.setReference(setPoint, savedControlType, pidSlot);
+        }
     }
 
     /**
@@ -142,12 +214,16 @@ public class PIDSparkMax extends SmartMotorController {
 
     @Override
     public void set(final double speed) {
-        sparkMax.set(speed);
+        if (shouldWrite(speed, ControlType.kDutyCycle, 0)) {
+            sparkMax.set(speed);
+        }
     }
 
     @Override
     public void setVoltage(final double outputVolts) {
-        sparkMax.setVoltage(outputVolts);
+        if (shouldWrite(outputVolts, ControlType.kVoltage, 0)) {
+            sparkMax.setVoltage(outputVolts);
+        }
     }
 
     @Override
@@ -166,13 +242,28 @@ public class PIDSparkMax extends SmartMotorController {
         return sparkMax.getInverted();
     }
 
+    @Override
+    protected boolean addFollower(final MotorController follower, final boolean inverted) {
+        final CANSparkMax max;
+        if (follower instanceof PIDSparkMax) {
+            max = ((PIDSparkMax) follower).getMotorController();
+        } else if (follower instanceof CANSparkMax) {
+            max = (CANSparkMax) follower;
+        } else {
+            return false;
+        }
+        return max.follow(sparkMax, inverted) == REVLibError.kOk;
+    }
+
     @Override
     public void disable() {
+        invalidateWrite();
         sparkMax.disable();
     }
 
     @Override
     public void stopMotor() {
+        invalidateWrite();
         sparkMax.stopMotor();
     }
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package com.chopshop166.chopshoplib.motors;
 
 import com.chopshop166.chopshoplib.sensors.TalonEncoder;
+import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.InvertType;
+import com.ctre.phoenix.motorcontrol.StatusFrame;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 import com.ctre.phoenix.motorcontrol.can.BaseTalon;
 
 import edu.wpi.first.util.sendable.Sendable;
@@ -12,6 +16,9 @@ import edu.wpi.first.wpilibj.motorcontrol.MotorController;
  */
 public class PIDTalonBase<T extends BaseTalon & MotorController & Sendable> extends SmartMotorController {
 
+    /** The longest status frame period the Talon accepts, in ms. */
+    private static final int MAX_FRAME_PERIOD = 255;
+
     /** Reference to the wrapped Talon. */
     private final T wrapped;
     /** The Talon control mode. */
@@ -37,6 +44,31 @@ public class PIDTalonBase<T extends BaseTalon & MotorController & Sendable> exte
         return wrapped;
     }
 
+    /**
+     * Set how often the Talon sends its status frames.
+     *
+     * Position and velocity share a frame, so that frame uses the shorter of the
+     * two periods. Periods are limited to what the Talon accepts. The encoder's
+     * update periods are only changed if every frame was accepted.
+     *
+     * @param profile The telemetry profile to use.
+     * @return The first error from the Talon, or OK.
+     */
+    public ErrorCode setTelemetryProfile(final TelemetryProfile profile) {
+        final int feedbackPeriod = Math.min(MAX_FRAME_PERIOD,
+                Math.min(profile.getPositionPeriod(), profile.getVelocityPeriod()));
+        final ErrorCode result = ErrorCode.worstOne(
+                wrapped.setStatusFramePeriod(StatusFrame.Status_1_General,
+                        Math.min(MAX_FRAME_PERIOD, profile.getGeneralPeriod())),
+                wrapped.setStatusFramePeriod(StatusFrame.Status_2_Feedback0, feedbackPeriod),
+                wrapped.setStatusFramePeriod(StatusFrame.Status_4_AinTempVbat,
+                        Math.min(MAX_FRAME_PERIOD, profile.getDiagnosticsPeriod())));
+        if (result == ErrorCode.OK) {
+            getEncoder().setUpdatePeriods(feedbackPeriod / 1000.0, feedbackPeriod / 1000.0);
+        }
+        return result;
+    }
+
     /**
      * Set the control type.
      *
@@ -75,8 +107,33 @@ public class PIDTalonBase<T extends BaseTalon & MotorController & Sendable> exte
         return (TalonEncoder) super.getEncoder();
     }
 
+    @Override
+    public void set(final double speed) {
+        if (shouldWrite(speed, ControlMode.PercentOutput, 0)) {
+            super.set(speed);
+        }
+    }
+
     @Override
     public void setSetpoint(final double setPoint) {
-        wrapped.set(savedControlType, setPoint);
+        if (shouldWrite(setPoint, savedControlType, 0)) {
+            wrapped.set(savedControlType, setPoint);
+        }
+    }
+
+    @Override
+    protected boolean addFollower(final MotorController follower, final boolean inverted) {
+        final BaseMotorController ctre;
+        if (follower instanceof PIDTalonBase) {
+            ctre = ((PIDTalonBase<?>) follower).getMotorController();
+        } else if (follower instanceof BaseMotorController) {
+            ctre = (BaseMotorController) follower;
+        } else {
+            return false;
+        }
+        ctre.follow(wrapped);
+        final ErrorCode followError = ctre.getLastError();
+        ctre.setInverted(inverted ? InvertType.OpposeMaster : InvertType.FollowMaster);
+        return ErrorCode.worstOne(followError, ctre.getLastError()) == ErrorCode.OK;
     }
-}
\ No newline at end of file
+}
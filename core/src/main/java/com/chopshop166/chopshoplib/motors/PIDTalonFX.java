@@ -1,16 +1,47 @@
 package com.chopshop166.chopshoplib.motors;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 
-/** Convenience alias for a Talon SRX */
+/**
+ * Convenience alias for a Talon FX.
+ *
+ * The gains of each stored configuration (from its slot 0) are kept in their
+ * own hardware slot, so switching configurations only selects a slot and sends
+ * the other settings that differ. Configuration is applied in the background by
+ * the {@link MotorConfigService}, which only sends gains that aren't already in
+ * the slot. The slot is selected at the end of the same batch, so it is never
+ * used before its gains are written.
+ *
+ * The Talon has four hardware slots. Configurations at index 4 and above all
+ * share hardware slot 3 with configuration 3, so switching between them
+ * rewrites the gains in that slot.
+ *
+ * Only the gains, the settings in {@link TalonSettings} and the current limits
+ * are diffed. If a configuration differs from the last full write in any other
+ * setting (such as the feedback sensor or limit switch sources), switching to
+ * it writes the whole configuration again.
+ */
 public class PIDTalonFX extends PIDTalonBase<WPI_TalonFX> {
 
+    /** The number of hardware gain slots on the Talon. */
+    private static final int HARDWARE_SLOTS = 4;
+    /** The configuration fields that are diffed when switching configurations. */
+    private static final Set<String> DIFFED_FIELDS = diffedFields();
+
     /** List of Configurations that we can switch between. */
     final private List<TalonFXConfiguration> config = new ArrayList<>(4);
+    /** The configuration last written in full, or null if that write failed. */
+    private final AtomicReference<TalonFXConfiguration> fullConfig = new AtomicReference<>();
 
     /**
      * Constructor.
@@ -34,24 +65,162 @@ public class PIDTalonFX extends PIDTalonBase<WPI_TalonFX> {
      * Add the default configuration to the list of configurations and set it in the
      * TalonFX.
      *
+     * The configuration is applied in the background, see
+     * {@link #whenConfigured()}.
+     *
      * @param config Configuration to add to the list of stored configs.
      */
     public void addDefaultConfiguration(final TalonFXConfiguration config) {
         this.config.add(config);
-        getMotorController().configAllSettings(config);
+        final MotorConfigService.Batch batch = MotorConfigService.getInstance().configure(this);
+        writeAll(batch, config);
+        selectSlot(batch, 0);
+        submitFull(batch, config);
     }
 
     /**
      * Add a configuration to the list of configurations we can swap to.
      *
+     * The first four configurations have their gains uploaded to a hardware slot
+     * right away. Later configurations share hardware slot 3 with configuration
+     * 3, and have their gains written when they are selected.
+     *
      * @param config Configuration to add to the list of stored configs.
      */
     public void addConfiguration(final TalonFXConfiguration config) {
         this.config.add(config);
+        final int index = this.config.size() - 1;
+        if (index < HARDWARE_SLOTS) {
+            final MotorConfigService.Batch batch = MotorConfigService.getInstance().configure(this);
+            loadSlot(batch, index, index);
+            batch.submit();
+        }
     }
 
+    /**
+     * Switch to a stored configuration.
+     *
+     * Configurations at index 4 and above use hardware slot 3, which is shared
+     * with configuration 3. If the configuration differs from the last one
+     * written in full outside of the diffed settings, it is written in full.
+     *
+     * @param slotId The index of the stored configuration.
+     */
     @Override
     public void setPidSlot(final int slotId) {
-        getMotorController().configAllSettings(this.config.get(slotId));
+        final TalonFXConfiguration target = this.config.get(slotId);
+        final int hardwareSlot = Math.min(slotId, HARDWARE_SLOTS - 1);
+        final MotorConfigService.Batch batch = MotorConfigService.getInstance().configure(this);
+        final boolean full = !TalonSettings.sameOutside(target, fullConfig.get(), DIFFED_FIELDS);
+        if (full) {
+            writeAll(batch, target);
+        } else {
+            TalonSettings.addCommon(batch, getMotorController(), target, true);
+            addCurrentLimits(batch, target, true);
+        }
+        loadSlot(batch, slotId, hardwareSlot);
+        selectSlot(batch, hardwareSlot);
+        if (full) {
+            submitFull(batch, target);
+        } else {
+            batch.submit();
+        }
+    }
+
+    /**
+     * Write a whole configuration, then put the stored gains back in their slots.
+     *
+     * @param batch  The batch to add to.
+     * @param target The configuration to write.
+     */
+    private void writeAll(final MotorConfigService.Batch batch, final TalonFXConfiguration target) {
+        final WPI_TalonFX talon = getMotorController();
+        batch.replaceAll("all", target, ms -> talon.configAllSettings(target, ms) == ErrorCode.OK);
+        TalonSettings.addCommon(batch, talon, target, false);
+        addCurrentLimits(batch, target, false);
+        TalonSettings.addSlot(batch, talon, 0, target.slot0, false);
+        TalonSettings.addSlot(batch, talon, 1, target.slot1, false);
+        TalonSettings.addSlot(batch, talon, 2, target.slot2, false);
+        TalonSettings.addSlot(batch, talon, 3, target.slot3, false);
+        for (int i = 0; i < Math.min(this.config.size(), HARDWARE_SLOTS); i++) {
+            loadSlot(batch, i, i);
+        }
+    }
+
+    /**
+     * Submit a batch that writes a whole configuration.
+     *
+     * If the batch fails, the next switch writes the whole configuration again.
+     *
+     * @param batch  The batch to submit.
+     * @param target The configuration being written.
+     */
+    private void submitFull(final MotorConfigService.Batch batch, final TalonFXConfiguration target) {
+        fullConfig.set(target);
+        batch.submit().whenComplete((result, error) -> {
+            if (error != null) {
+                fullConfig.compareAndSet(target, null);
+            }
+        });
+    }
+
+    /**
+     * Put a configuration's gains into a hardware slot.
+     *
+     * Gains the slot already has from an earlier successful write are skipped.
+     *
+     * @param batch        The batch to add the gains to.
+     * @param configIdx    The index of the stored configuration.
+     * @param hardwareSlot The hardware slot to write to.
+     */
+    private void loadSlot(final MotorConfigService.Batch batch, final int configIdx, final int hardwareSlot) {
+        TalonSettings.addSlot(batch, getMotorController(), hardwareSlot, this.config.get(configIdx).slot0, true);
+    }
+
+    /**
+     * Select a hardware slot, after everything before it in the batch.
+     *
+     * @param batch        The batch to add to.
+     * @param hardwareSlot The hardware slot to use for closed loop control.
+     */
+    private void selectSlot(final MotorConfigService.Batch batch, final int hardwareSlot) {
+        final WPI_TalonFX talon = getMotorController();
+        batch.set("profileSlot", hardwareSlot, ms -> {
+            talon.selectProfileSlot(hardwareSlot, 0);
+            return talon.getLastError() == ErrorCode.OK;
+        });
+    }
+
+    /**
+     * Get the names of the configuration fields that are diffed.
+     *
+     * @return The common settings, current limits and gain slots.
+     */
+    private static Set<String> diffedFields() {
+        final Set<String> fields = new HashSet<>(TalonSettings.COMMON_FIELDS);
+        fields.addAll(List.of("supplyCurrLimit", "statorCurrLimit", "slot0", "slot1", "slot2", "slot3"));
+        return Set.copyOf(fields);
+    }
+
+    /**
+     * Add the current limits of a configuration.
+     *
+     * @param batch  The batch to add to.
+     * @param config The configuration to take the limits from.
+     * @param write  True to write the limits, false if the Talon already has them.
+     */
+    private void addCurrentLimits(final MotorConfigService.Batch batch, final TalonFXConfiguration config,
+            final boolean write) {
+        final WPI_TalonFX talon = getMotorController();
+        final SupplyCurrentLimitConfiguration supply = config.supplyCurrLimit;
+        final StatorCurrentLimitConfiguration stator = config.statorCurrLimit;
+        TalonSettings.put(batch, write, "supplyCurrLimit",
+                List.of(supply.enable, supply.currentLimit, supply.triggerThresholdCurrent,
+                        supply.triggerThresholdTime),
+                ms -> talon.configSupplyCurrentLimit(supply, ms));
+        TalonSettings.put(batch, write, "statorCurrLimit",
+                List.of(stator.enable, stator.currentLimit, stator.triggerThresholdCurrent,
+                        stator.triggerThresholdTime),
+                ms -> talon.configStatorCurrentLimit(stator, ms));
     }
 }
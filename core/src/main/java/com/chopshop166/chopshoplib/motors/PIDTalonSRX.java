@@ -3,6 +3,7 @@ package com.chopshop166.chopshoplib.motors;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.motorcontrol.can.TalonSRXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 
@@ -34,11 +35,14 @@ public class PIDTalonSRX extends PIDTalonBase<WPI_TalonSRX> {
      * Add the default configuration to the list of configurations and set it in the
      * TalonSRX.
      *
+     * The configuration is applied in the background, see
+     * {@link #whenConfigured()}.
+     *
      * @param config Configuration to add to the list of stored configs.
      */
     public void addDefaultConfiguration(final TalonSRXConfiguration config) {
         this.config.add(config);
-        getMotorController().configAllSettings(config);
+        applyAll(config);
     }
 
     /**
@@ -52,7 +56,18 @@ public class PIDTalonSRX extends PIDTalonBase<WPI_TalonSRX> {
 
     @Override
     public void setPidSlot(final int slotId) {
-        getMotorController().configAllSettings(this.config.get(slotId));
+        applyAll(this.config.get(slotId));
+    }
+
+    /**
+     * Apply a whole configuration in the background.
+     *
+     * @param config The configuration to apply.
+     */
+    private void applyAll(final TalonSRXConfiguration config) {
+        final WPI_TalonSRX talon = getMotorController();
+        MotorConfigService.getInstance().configure(this)
+                .replaceAll("all", config, ms -> talon.configAllSettings(config, ms) == ErrorCode.OK).submit();
     }
 
 }
@@ -0,0 +1,283 @@
+package com.chopshop166.chopshoplib.motors;
+
+import com.chopshop166.chopshoplib.states.PIDValues;
+
+/**
+ * Finds PID gains with relay feedback.
+ *
+ * The output switches between two levels whenever the measurement crosses the
+ * setpoint, which makes the mechanism oscillate. The size and period of the
+ * oscillation give the ultimate gain and period, which tuning rules turn into
+ * PID gains. Cycles are only recorded once two periods in a row are within
+ * {@link #SETTLED_TOLERANCE} of each other, so the start-up transient is
+ * ignored.
+ *
+ * If enough cycles aren't measured within the timeout, or tuning is aborted,
+ * the tuner reports failure and outputs the bias.
+ *
+ * All measurements are kept in arrays sized up front, so {@link #update} doesn't
+ * allocate.
+ */
+public class RelayAutoTuner {
+
+    /** How close two periods in a row must be for the oscillation to be steady. */
+    public static final double SETTLED_TOLERANCE = 0.05;
+    /** The default time allowed for tuning, in seconds. */
+    public static final double DEFAULT_TIMEOUT = 60.0;
+
+    /** Rules for turning the ultimate gain and period into gains. */
+    public enum Rule {
+        /** Classic Ziegler-Nichols, which is fast but overshoots. */
+        ZIEGLER_NICHOLS(0.6, 0.5, 0.125),
+        /** Tyreus-Luyben, which is slower with less overshoot. */
+        TYREUS_LUYBEN(1 / 2.2, 2.2, 1 / 6.3);
+
+        /** Proportional gain, as a fraction of the ultimate gain. */
+        private final double gainFactor;
+        /** Integral time, as a fraction of the ultimate period. */
+        private final double integralFactor;
+        /** Derivative time, as a fraction of the ultimate period. */
+        private final double derivativeFactor;
+
+        /**
+         * Create the enum value.
+         *
+         * @param gainFactor       Proportional gain over the ultimate gain.
+         * @param integralFactor   Integral time over the ultimate period.
+         * @param derivativeFactor Derivative time over the ultimate period.
+         */
+        Rule(final double gainFactor, final double integralFactor, final double derivativeFactor) {
+            this.gainFactor = gainFactor;
+            this.integralFactor = integralFactor;
+            this.derivativeFactor = derivativeFactor;
+        }
+    }
+
+    /** The output above and below the bias. */
+    private final double amplitude;
+    /** The output when at the setpoint. */
+    private final double bias;
+    /** How far past the setpoint the measurement must go before switching. */
+    private final double hysteresis;
+    /** The period of each cycle. */
+    private final double[] periods;
+    /** The peak-to-peak size of each cycle. */
+    private final double[] swings;
+    /** The time allowed for tuning, in seconds. */
+    private double timeout = DEFAULT_TIMEOUT;
+    /** The setpoint to oscillate around. */
+    private double setpoint;
+    /** When the first measurement was taken, in seconds, or NaN before then. */
+    private double startTime;
+    /** Whether tuning timed out or was aborted. */
+    private boolean failed;
+    /** Whether the output is currently high. */
+    private boolean high;
+    /** The number of times the output has switched up. */
+    private int risingEdges;
+    /** Whether the oscillation is steady. */
+    private boolean settled;
+    /** The period of the last cycle, in seconds, or NaN before then. */
+    private double lastPeriod = Double.NaN;
+    /** The number of cycles recorded. */
+    private int cycles;
+    /** When the output last switched up, in seconds. */
+    private double lastRiseTime;
+    /** The largest measurement in the current cycle. */
+    private double cycleMax;
+    /** The smallest measurement in the current cycle. */
+    private double cycleMin;
+
+    /**
+     * Create a tuner with no bias or hysteresis.
+     *
+     * @param amplitude The output above and below zero.
+     * @param cycles    The number of cycles to measure.
+     */
+    public RelayAutoTuner(final double amplitude, final int cycles) {
+        this(amplitude, 0.0, 0.0, cycles);
+    }
+
+    /**
+     * Create a tuner.
+     *
+     * @param amplitude  The output above and below the bias.
+     * @param bias       The output when at the setpoint, such as what holds an
+     *                   arm against gravity.
+     * @param hysteresis How far past the setpoint the measurement must go before
+     *                   switching, to ignore noise.
+     * @param cycles     The number of cycles to measure.
+     */
+    public RelayAutoTuner(final double amplitude, final double bias, final double hysteresis, final int cycles) {
+        if (amplitude <= 0 || hysteresis < 0 || cycles < 1) {
+            throw new IllegalArgumentException("Invalid relay settings");
+        }
+        this.amplitude = amplitude;
+        this.bias = bias;
+        this.hysteresis = hysteresis;
+        this.periods = new double[cycles];
+        this.swings = new double[cycles];
+    }
+
+    /**
+     * Set the time allowed for tuning.
+     *
+     * The time is counted from the first measurement after {@link #start}.
+     *
+     * @param timeout The time allowed, in seconds.
+     */
+    public void setTimeout(final double timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Start tuning.
+     *
+     * @param setpoint The setpoint to oscillate around.
+     */
+    public void start(final double setpoint) {
+        this.setpoint = setpoint;
+        startTime = Double.NaN;
+        failed = false;
+        high = true;
+        risingEdges = 0;
+        settled = false;
+        lastPeriod = Double.NaN;
+        cycles = 0;
+        cycleMax = Double.NEGATIVE_INFINITY;
+        cycleMin = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Take a measurement and get the output to apply.
+     *
+     * @param measurement The current measurement.
+     * @param time        The current time, in seconds.
+     * @return The output to apply.
+     */
+    public double update(final double measurement, final double time) {
+        if (isFinished() || failed) {
+            return bias;
+        }
+        if (Double.isNaN(startTime)) {
+            startTime = time;
+        } else if (time - startTime > timeout) {
+            failed = true;
+            return bias;
+        }
+        cycleMax = Math.max(cycleMax, measurement);
+        cycleMin = Math.min(cycleMin, measurement);
+        final double error = setpoint - measurement;
+        if (high && error < -hysteresis) {
+            high = false;
+        } else if (!high && error > hysteresis) {
+            high = true;
+            risingEdges++;
+            if (risingEdges > 1) {
+                final double period = time - lastRiseTime;
+                settled = settled || Math.abs(period - lastPeriod) <= SETTLED_TOLERANCE * period;
+                lastPeriod = period;
+                if (settled) {
+                    periods[cycles] = period;
+                    swings[cycles] = cycleMax - cycleMin;
+                    cycles++;
+                }
+            }
+            lastRiseTime = time;
+            cycleMax = measurement;
+            cycleMin = measurement;
+        }
+        return high ? bias + amplitude : bias - amplitude;
+    }
+
+    /**
+     * Check if enough cycles have been measured.
+     *
+     * @return True once tuning is done.
+     */
+    public boolean isFinished() {
+        return cycles == periods.length;
+    }
+
+    /**
+     * Stop tuning without results, unless it has already finished.
+     */
+    public void abort() {
+        if (!isFinished()) {
+            failed = true;
+        }
+    }
+
+    /**
+     * Check if tuning timed out or was aborted.
+     *
+     * @return True if tuning failed.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Get the number of cycles measured so far.
+     *
+     * @return The number of cycles.
+     */
+    public int getCycleCount() {
+        return cycles;
+    }
+
+    /**
+     * Get the average period of the measured cycles.
+     *
+     * @return The ultimate period, in seconds.
+     */
+    public double getUltimatePeriod() {
+        return average(periods);
+    }
+
+    /**
+     * Get the proportional gain that would make the loop oscillate.
+     *
+     * This uses the describing function of a relay, corrected for hysteresis.
+     *
+     * @return The ultimate gain.
+     */
+    public double getUltimateGain() {
+        final double oscillation = average(swings) / 2;
+        final double effective = Math.sqrt(Math.max(0, oscillation * oscillation - hysteresis * hysteresis));
+        return 4 * amplitude / (Math.PI * effective);
+    }
+
+    /**
+     * Get suggested gains.
+     *
+     * @param rule The tuning rule to use.
+     * @return The suggested gains.
+     * @throws IllegalStateException If tuning hasn't finished successfully.
+     */
+    public PIDValues getValues(final Rule rule) {
+        if (!isFinished()) {
+            throw new IllegalStateException(failed ? "Tuning failed" : "Tuning has not finished");
+        }
+        final double period = getUltimatePeriod();
+        final double kp = rule.gainFactor * getUltimateGain();
+        return new PIDValues(kp, kp / (rule.integralFactor * period), kp * rule.derivativeFactor * period);
+    }
+
+    /**
+     * Average the recorded cycles of an array.
+     *
+     * @param values The array.
+     * @return The average.
+     */
+    private double average(final double[] values) {
+        double sum = 0;
+        for (int i = 0; i < cycles; i++) {
+            sum += values[i];
+        }
+        return sum / cycles;
+    }
+}
@@ -2,6 +2,7 @@ package com.chopshop166.chopshoplib.motors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BooleanSupplier;
 
 import com.chopshop166.chopshoplib.sensors.IEncoder;
@@ -21,6 +22,11 @@ import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
  */
 public class SmartMotorController implements Sendable, MotorController {
 
+    /** The default time to resend unchanged writes after, in seconds. */
+    public static final double DEFAULT_KEEP_ALIVE = 0.1;
+    /** The default time between validator samples, in seconds. */
+    public static final double DEFAULT_VALIDATION_PERIOD = 0.1;
+
     /** The wrapped motor controller, as a sendable object. */
     private final Sendable sendable;
     /** The wrapped motor controller. */
@@ -29,6 +35,38 @@ public class SmartMotorController implements Sendable, MotorController {
     private final IEncoder encoder;
     /** Validators. */
     private final List<BooleanSupplier> validators = new ArrayList<>();
+    /** Lock for the write coalescing state, which is used by control loop threads. */
+    private final Object writeLock = new Object();
+    /** Writes within this much of the last one are suppressed. */
+    private double writeEpsilon;
+    /** Unchanged writes are still sent after this long, in ns. */
+    private long keepAliveNanos = (long) (DEFAULT_KEEP_ALIVE * 1e9);
+    /** Whether the last write is known. */
+    private boolean hasLastWrite;
+    /** The last value written. */
+    private double lastWriteValue;
+    /** The control mode of the last write. */
+    private Enum<?> lastWriteMode;
+    /** The PID slot of the last write. */
+    private int lastWriteSlot;
+    /** When the last write was sent, in ns. */
+    private long lastWriteTime;
+    /** The number of writes suppressed. */
+    private long suppressedWrites;
+    /** The time between validator samples, in ns. */
+    private long validationPeriodNanos = (long) (DEFAULT_VALIDATION_PERIOD * 1e9);
+    /** The number of failed samples in a row needed to fault. */
+    private int faultDebounce = 1;
+    /** Whether a fault stays until cleared. */
+    private boolean latchFaults;
+    /** Whether the validators have been sampled since they last changed. */
+    private volatile boolean hasSample;
+    /** When the validators were last sampled, in ns. */
+    private volatile long lastSampleTime;
+    /** The number of failed samples in a row. */
+    private int consecutiveFailures;
+    /** Whether the controller is faulted. */
+    private volatile boolean faulted;
 
     /** Construct with mocks for everything */
     public SmartMotorController() {
@@ -120,15 +158,123 @@ public class SmartMotorController implements Sendable, MotorController {
         // Do nothing for this class
     }
 
+    /**
+     * Get a future that completes once all configuration queued for this
+     * controller has been applied.
+     *
+     * @return The future, which fails if any setting could not be applied.
+     */
+    public CompletableFuture<Void> whenConfigured() {
+        return MotorConfigService.getInstance().whenConfigured(this);
+    }
+
+    /**
+     * Configure suppression of redundant writes.
+     *
+     * A write is suppressed if it has the same control mode and PID slot as the
+     * last one, and its value is within the epsilon. Unchanged writes are still
+     * sent once per keep-alive period. Only controllers that talk over CAN
+     * suppress writes. Writes can come from a control loop thread while the
+     * motor is stopped from another, so this state is shared under a lock.
+     *
+     * @param epsilon         How close a value must be to count as unchanged.
+     * @param keepAlivePeriod How often to resend unchanged writes, in seconds. Use
+     *                        0 to send every write.
+     */
+    public void setWriteCoalescing(final double epsilon, final double keepAlivePeriod) {
+        if (epsilon < 0 || keepAlivePeriod < 0) {
+            throw new IllegalArgumentException("Write coalescing parameters cannot be negative");
+        }
+        synchronized (writeLock) {
+            this.writeEpsilon = epsilon;
+            this.keepAliveNanos = (long) (keepAlivePeriod * 1e9);
+        }
+    }
+
+    /**
+     * Get the number of writes that were suppressed as redundant.
+     *
+     * @return The suppressed write count.
+     */
+    public long getSuppressedWriteCount() {
+        synchronized (writeLock) {
+            return suppressedWrites;
+        }
+    }
+
+    /**
+     * Check if a write needs to be sent, and record it if so.
+     *
+     * @param value The value to write.
+     * @param mode  The control mode of the write.
+     * @param slot  The PID slot of the write.
+     * @return True if the write should be sent.
+     */
+    protected boolean shouldWrite(final double value, final Enum<?> mode, final int slot) {
+        return shouldWrite(value, mode, slot, System.nanoTime());
+    }
+
+    /**
+     * Check if a write needs to be sent at a given time, and record it if so.
+     *
+     * @param value The value to write.
+     * @param mode  The control mode of the write.
+     * @param slot  The PID slot of the write.
+     * @param now   The current time, in ns.
+     * @return True if the write should be sent.
+     */
+    /* package */ boolean shouldWrite(final double value, final Enum<?> mode, final int slot, final long now) {
+        synchronized (writeLock) {
+            if (hasLastWrite && mode == lastWriteMode && slot == lastWriteSlot
+                    && Math.abs(value - lastWriteValue) <= writeEpsilon && now - lastWriteTime < keepAliveNanos) {
+                suppressedWrites++;
+                return false;
+            }
+            hasLastWrite = true;
+            lastWriteValue = value;
+            lastWriteMode = mode;
+            lastWriteSlot = slot;
+            lastWriteTime = now;
+            return true;
+        }
+    }
+
+    /**
+     * Forget the last write, so that the next one is always sent.
+     *
+     * Call this when the output is changed without going through
+     * {@link #shouldWrite(double, Enum, int)}.
+     */
+    protected void invalidateWrite() {
+        synchronized (writeLock) {
+            hasLastWrite = false;
+        }
+    }
+
     /**
      * Verify that all validators pass.
      * 
-     * Use this to test for things like current.
+     * Use this to test for things like current. The validators are only run if
+     * a sample is due, see {@link #setValidationPeriod(double)}, and otherwise
+     * the cached result is returned.
      * 
      * @return Whether all validators pass.
      */
     public boolean validate() {
-        return validators.stream().allMatch(BooleanSupplier::getAsBoolean);
+        return validate(System.nanoTime());
+    }
+
+    /**
+     * Verify that all validators pass, running them if a sample is due.
+     * 
+     * @param now The current time, in ns.
+     * @return Whether all validators pass.
+     */
+    /* package */ boolean validate(final long now) {
+        if (isSampleDue(now)) {
+            sampleValidators(now);
+        }
+        return !faulted;
     }
 
     /**
@@ -143,10 +289,109 @@ public class SmartMotorController implements Sendable, MotorController {
     /**
      * Add a validator.
      * 
+     * The controller is also tracked by the {@link FaultRegistry}.
+     * 
      * @param validator The validator to test for.
      */
     public void addValidator(final BooleanSupplier validator) {
-        validators.add(validator);
+        synchronized (this) {
+            validators.add(validator);
+            hasSample = false;
+        }
+        FaultRegistry.getInstance().register(this);
+    }
+
+    /**
+     * Set how often the validators are run.
+     * 
+     * @param period The time between samples, in seconds. Use 0 to run them on
+     *               every check.
+     */
+    public void setValidationPeriod(final double period) {
+        if (period < 0) {
+            throw new IllegalArgumentException("Validation period cannot be negative");
+        }
+        validationPeriodNanos = (long) (period * 1e9);
+    }
+
+    /**
+     * Set how many samples in a row must fail before the controller is faulted.
+     * 
+     * @param count The number of failed samples.
+     */
+    public void setFaultDebounce(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Fault debounce must be at least one sample");
+        }
+        faultDebounce = count;
+    }
+
+    /**
+     * Set whether a fault stays until cleared, even if the validators pass again.
+     * 
+     * @param latch True to latch faults.
+     */
+    public void setFaultLatching(final boolean latch) {
+        latchFaults = latch;
+    }
+
+    /**
+     * Check the cached fault state, without running the validators.
+     * 
+     * @return True if the controller is faulted.
+     */
+    public boolean isFaulted() {
+        return faulted;
+    }
+
+    /** Clear the fault state, including a latched fault. */
+    public synchronized void clearFault() {
+        faulted = false;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Run the validators if a sample is due, and update the fault state.
+     * 
+     * The validators are run at most once per validation period.
+     */
+    public void sampleValidators() {
+        sampleValidators(System.nanoTime());
+    }
+
+    /**
+     * Run the validators if a sample is due, and update the fault state.
+     * 
+     * @param now The current time, in ns.
+     */
+    /* package */ synchronized void sampleValidators(final long now) {
+        if (validators.isEmpty() || !isSampleDue(now)) {
+            return;
+        }
+        hasSample = true;
+        lastSampleTime = now;
+        boolean passed = true;
+        for (int i = 0; i < validators.size() && passed; i++) {
+            passed = validators.get(i).getAsBoolean();
+        }
+        if (passed) {
+            consecutiveFailures = 0;
+            if (!latchFaults) {
+                faulted = false;
+            }
+        } else if (++consecutiveFailures >= faultDebounce) {
+            faulted = true;
+        }
+    }
+
+    /**
+     * Check if the validators should be run again.
+     * 
+     * @param now The current time, in ns.
+     * @return True if there is no sample, or it is a validation period old.
+     */
+    private boolean isSampleDue(final long now) {
+        return !hasSample || now - lastSampleTime >= validationPeriodNanos;
     }
 
     @Override
@@ -177,11 +422,13 @@ public class SmartMotorController implements Sendable, MotorController {
 
     @Override
     public void disable() {
+        invalidateWrite();
         wrapped.disable();
     }
 
     @Override
     public void stopMotor() {
+        invalidateWrite();
         wrapped.stopMotor();
     }
 
@@ -190,6 +437,46 @@ public class SmartMotorController implements Sendable, MotorController {
         sendable.initSendable(builder);
     }
 
+    /**
+     * Set up controllers to follow a leader in hardware.
+     *
+     * Each follower must be one the leader can command directly, such as a Spark
+     * MAX following a Spark MAX. Only the leader is then sent commands, and
+     * followers stay in step with the leader's onboard PID. A follower is
+     * inverted relative to the leader if its {@link #getInverted()} differs from
+     * the leader's when it is set up.
+     *
+     * Followers that can't follow the leader directly would miss closed-loop
+     * commands, so they are refused. Use a {@link MotorControllerGroup} for
+     * open-loop groups of mixed controllers.
+     *
+     * @param leader    The controller to command.
+     * @param followers The controllers to follow the leader.
+     * @return The leader.
+     * @throws IllegalArgumentException If a follower can't follow the leader. The
+     *                                  followers before it are left following.
+     */
+    public static SmartMotorController withFollowers(final SmartMotorController leader,
+            final MotorController... followers) {
+        for (final MotorController follower : followers) {
+            if (!leader.addFollower(follower, follower.getInverted() != leader.getInverted())) {
+                throw new IllegalArgumentException("Could not set up " + follower + " to follow " + leader);
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Set up a controller to follow this one in hardware.
+     *
+     * @param follower The controller to follow this one.
+     * @param inverted Whether the follower is inverted relative to this one.
+     * @return True if the follower now follows this controller, false if it can't.
+     */
+    protected boolean addFollower(final MotorController follower, final boolean inverted) {
+        return false;
+    }
+
     private static MotorControllerGroup grouped(final MotorController mc1, final MotorController mc2,
             final MotorController... mcs) {
         final MotorController[] result = new MotorController[mcs.length + 2];
@@ -4,32 +4,52 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.DoubleSupplier;
 
+import com.chopshop166.chopshoplib.MotionProfile;
 import com.chopshop166.chopshoplib.sensors.IEncoder;
 import com.chopshop166.chopshoplib.sensors.MockEncoder;
+import com.chopshop166.chopshoplib.states.GainSchedule;
 import com.chopshop166.chopshoplib.states.PIDValues;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.util.sendable.Sendable;
-import edu.wpi.first.wpilibj.Watchdog;
+import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.wpilibj.motorcontrol.MotorController;
 
 /**
  * Use a PID controller with a generic speed controller.
  */
-public class SwPIDMotorController extends SmartMotorController {
+public class SwPIDMotorController extends SmartMotorController implements AutoCloseable {
 
     /** The PID controller for calculations. */
     final private PIDController pid;
     /** The measurement source. */
     final private DoubleSupplier measurement;
-    /** The watchdog to repeatedly trigger the calculation. */
-    final private Watchdog dog = new Watchdog(1.0 / 50.0, this::calculatePID);
-    /** The feedforward coefficient. */
-    private double feedforward;
-    /** The setpoint to move to. */
-    private double setpoint;
+    /** The executor running the control loop. */
+    final private ControlLoopExecutor executor;
+    /** The control loop that repeatedly triggers the calculation. */
+    final private ControlLoopExecutor.Loop loop;
+    /** Whether the measurement is a position or a velocity. */
+    private volatile PIDControlType controlType = PIDControlType.Position;
+    /** The goal to move to. */
+    private volatile double setpoint;
+    /** Whether the last loop was at the goal. */
+    private volatile boolean atGoal;
     /** Whether the PID controller is enabled. */
     private boolean pidEnabled = true;
+    /** The integral of the error, using the measured loop period. */
+    private double integral;
+    /** The motion profile that moves the PID setpoint towards the goal. */
+    final private MotionProfile profile = new MotionProfile();
+    /** The active configuration, or null to use the PID controller's gains. */
+    private volatile PIDValues activeConfig;
+    /** The gain schedule to use instead of the active configuration's gains. */
+    private volatile GainSchedule schedule;
+    /** The operating point of the gain schedule, or null to use the setpoint. */
+    private volatile DoubleSupplier scheduleKey;
+    /** The configuration the profile constraints were last taken from. */
+    private PIDValues appliedConfig;
+    /** Set when the profile should restart from the measurement. */
+    private volatile boolean resetProfile = true;
     /** List of PID Parameters that we can switch between. */
     final private List<PIDValues> configs = new ArrayList<>(4);
 
@@ -69,7 +89,9 @@ public class SwPIDMotorController extends SmartMotorController {
      */
     public static <T extends Sendable & MotorController> SwPIDMotorController velocity(final T motor,
             final PIDController pid, final IEncoder encoder) {
-        return new SwPIDMotorController(motor, encoder, pid, encoder::getRate);
+        final SwPIDMotorController controller = new SwPIDMotorController(motor, encoder, pid, encoder::getRate);
+        controller.setControlType(PIDControlType.Velocity);
+        return controller;
     }
 
     /**
@@ -107,34 +129,112 @@ public class SwPIDMotorController extends SmartMotorController {
      */
     public <T extends Sendable & MotorController> SwPIDMotorController(final T motor, final IEncoder encoder,
             final PIDController pid, final DoubleSupplier measurement) {
+        this(motor, encoder, pid, measurement, ControlLoopExecutor.getInstance());
+    }
+
+    /**
+     * Create a PID speed controller using software PID.
+     *
+     * The loop runs at the rate given by the PID controller's period, once the
+     * executor is started. The shared executor starts itself, while other
+     * executors can be started or ticked by hand, such as in simulation. If the
+     * calculation throws, such as when the measurement fails, the motor is
+     * stopped.
+     *
+     * @param <T>         The unwrapped type of a motor controller
+     * @param motor       The motor controller to use.
+     * @param encoder     The encoder to use.
+     * @param pid         The PID controller for calculation.
+     * @param measurement The measurement source.
+     * @param executor    The executor to run the control loop on.
+     */
+    public <T extends Sendable & MotorController> SwPIDMotorController(final T motor, final IEncoder encoder,
+            final PIDController pid, final DoubleSupplier measurement, final ControlLoopExecutor executor) {
         super(motor, encoder);
         this.measurement = measurement;
         this.pid = pid;
-        dog.suppressTimeoutMessage(true);
-        dog.enable();
+        this.executor = executor;
+        this.loop = executor.register(motor.getClass().getSimpleName(), 1.0 / pid.getPeriod(),
+                this::calculatePID);
+        this.loop.setFailureHandler(error -> stopMotor());
     }
 
     /**
      * Get the PID controller.
      *
+     * The controller's setpoint is the profiled reference, which moves towards
+     * the goal, so {@link PIDController#atSetpoint()} only says whether the
+     * mechanism is following the profile. Use {@link #atGoal()} to check if it
+     * has arrived.
+     *
      * @return The PID controller.
      */
     public PIDController getController() {
         return pid;
     }
 
+    /**
+     * Get the control loop running the PID calculation.
+     *
+     * @return The control loop.
+     */
+    public ControlLoopExecutor.Loop getControlLoop() {
+        return loop;
+    }
+
+    /**
+     * Get the goal the controller is moving to.
+     *
+     * @return The goal given to {@link #setSetpoint(double)}.
+     */
+    public double getGoal() {
+        return setpoint;
+    }
+
+    /**
+     * Check if the mechanism has reached the goal.
+     *
+     * This is true once the profiled reference has reached the goal and the
+     * measurement is within the PID controller's tolerance of it.
+     *
+     * @return True if at the goal.
+     */
+    public boolean atGoal() {
+        return atGoal;
+    }
+
+    /**
+     * Get the current measurement.
+     *
+     * @return The measurement the PID controller uses.
+     */
+    public double getMeasurement() {
+        return measurement.getAsDouble();
+    }
+
+    /**
+     * Check if the PID controller is enabled.
+     *
+     * @return True if the control loop is running.
+     */
+    public boolean isPIDEnabled() {
+        return pidEnabled;
+    }
+
     /** Enable the PID controller. */
     public void enablePID() {
         if (!pidEnabled) {
             pidEnabled = true;
-            dog.enable();
+            integral = 0;
+            resetProfile = true;
+            loop.setEnabled(true);
         }
     }
 
     /** Disable the PID controller. */
     public void disablePID() {
         pidEnabled = false;
-        dog.disable();
+        loop.setEnabled(false);
     }
 
     /**
@@ -145,7 +245,7 @@ public class SwPIDMotorController extends SmartMotorController {
      */
     public void addDefaultConfiguration(final PIDValues config) {
         this.configs.add(config);
-        this.feedforward = config.ff;
+        this.activeConfig = config;
         this.pid.setPID(config.p, config.i, config.d);
     }
 
@@ -158,25 +258,172 @@ public class SwPIDMotorController extends SmartMotorController {
         this.configs.add(config);
     }
 
+    /**
+     * Set the goal to move to.
+     *
+     * If the current configuration has a motion profile, the PID setpoint moves
+     * towards the goal along the profile, see {@link #getGoal()} and
+     * {@link #atGoal()}. Otherwise the PID setpoint is set immediately.
+     *
+     * @param setPoint The new setpoint.
+     */
     @Override
     public void setSetpoint(final double setPoint) {
-        pid.setSetpoint(setPoint);
+        if (setPoint != this.setpoint) {
+            atGoal = false;
+        }
         this.setpoint = setPoint;
+        final PIDValues config = activeConfig;
+        if (config == null || config.maxVelocity <= 0 || config.maxAcceleration <= 0) {
+            pid.setSetpoint(setPoint);
+        }
     }
 
     @Override
     public void setPidSlot(final int slotId) {
         final var config = this.configs.get(slotId);
-        this.feedforward = config.ff;
+        this.schedule = null;
+        this.activeConfig = config;
         this.pid.setPID(config.p, config.i, config.d);
     }
 
-    /** Calculate the PID value, and set the speed controler to the result. */
+    /**
+     * Schedule the gains by the profiled setpoint.
+     *
+     * The gains and feedforward are looked up in the schedule every loop. The
+     * motion profile constraints still come from the active configuration.
+     *
+     * @param schedule The gain schedule, which must not be shared.
+     */
+    public void setGainSchedule(final GainSchedule schedule) {
+        setGainSchedule(schedule, null);
+    }
+
+    /**
+     * Schedule the gains by an operating point, such as measured velocity or arm
+     * angle.
+     *
+     * The gains and feedforward are looked up in the schedule every loop. The
+     * motion profile constraints still come from the active configuration.
+     *
+     * @param schedule       The gain schedule, which must not be shared.
+     * @param operatingPoint The operating point to look up, or null to use the
+     *                       profiled setpoint.
+     */
+    public void setGainSchedule(final GainSchedule schedule, final DoubleSupplier operatingPoint) {
+        this.schedule = null;
+        this.scheduleKey = operatingPoint;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Set whether the measurement is a position or a velocity.
+     *
+     * This decides how the feedforward is calculated from the profiled setpoint.
+     *
+     * @param controlType The controlType to set.
+     */
+    @Override
+    public void setControlType(final PIDControlType controlType) {
+        this.controlType = controlType;
+    }
+
+    /** Stop running the control loop. */
+    @Override
+    public void close() {
+        executor.unregister(loop);
+    }
+
+    @Override
+    public void initSendable(final SendableBuilder builder) {
+        super.initSendable(builder);
+        loop.getTiming().initSendable(builder);
+    }
+
+    /**
+     * Calculate the PID value, and set the speed controler to the result.
+     *
+     * The PID controller tracks the error, but the integral and derivative are
+     * calculated here using the measured time since the last run instead of
+     * the controller's fixed period. The integral is limited the same way as the
+     * controller's default integrator range. If no time has passed since the
+     * last run, such as when a hand-ticked clock hasn't moved, nothing is updated
+     * and the last output is held.
+     *
+     * The gains and feedforward all come from one configuration or gain
+     * schedule, so a slot switch takes effect all at once. The feedforward is
+     * calculated from the profiled setpoint. For position control the profile's
+     * velocity and acceleration are used. For velocity control the setpoint is
+     * the velocity, and the profile's rate of change is the acceleration. Without
+     * a profile these are 0, so only the terms that don't need them apply.
+     */
     private void calculatePID() {
-        final double ff = feedforward * setpoint;
+        final PIDValues config = activeConfig;
+        final GainSchedule gains = schedule;
+        final double dt = loop.getTiming().getLastDt();
+        if (!(dt > 0)) {
+            return;
+        }
         final double meas = measurement.getAsDouble();
-        final double calc = pid.calculate(meas);
-        set(ff + calc);
-        dog.reset();
+        final double goal = setpoint;
+        final double reference = advanceProfile(config, goal, meas, dt);
+        pid.setSetpoint(reference);
+        pid.calculate(meas);
+        atGoal = reference == goal && goal == setpoint && pid.atSetpoint();
+        final boolean velocityControl = controlType == PIDControlType.Velocity;
+        final double position = velocityControl ? getEncoder().getDistance() : reference;
+        final double velocity = velocityControl ? reference : profile.getVelocity();
+        final double acceleration = velocityControl ? profile.getVelocity() : profile.getAcceleration();
+        final double kp;
+        final double ki;
+        final double kd;
+        final double ff;
+        if (gains != null) {
+            final DoubleSupplier key = scheduleKey;
+            gains.update(key == null ? reference : key.getAsDouble());
+            kp = gains.getP();
+            ki = gains.getI();
+            kd = gains.getD();
+            ff = gains.calculateFeedforward(reference, position, velocity, acceleration);
+        } else if (config != null) {
+            kp = config.p;
+            ki = config.i;
+            kd = config.d;
+            ff = config.calculateFeedforward(reference, position, velocity, acceleration);
+        } else {
+            kp = pid.getP();
+            ki = pid.getI();
+            kd = pid.getD();
+            ff = 0;
+        }
+        final double error = pid.getPositionError();
+        if (ki != 0) {
+            final double limit = Math.abs(1.0 / ki);
+            integral = Math.max(-limit, Math.min(limit, integral + error * dt));
+        }
+        final double derivative = pid.getVelocityError() * pid.getPeriod() / dt;
+        set(ff + kp * error + ki * integral + kd * derivative);
+    }
+
+    /**
+     * Move the profiled setpoint one step towards the goal.
+     *
+     * @param config The active configuration, or null.
+     * @param goal   The goal to move towards.
+     * @param meas   The current measurement.
+     * @param dt     The time since the last step, in seconds.
+     * @return The setpoint for this step.
+     */
+    private double advanceProfile(final PIDValues config, final double goal, final double meas, final double dt) {
+        if (resetProfile) {
+            resetProfile = false;
+            profile.reset(meas);
+        }
+        if (config != null && config != appliedConfig) {
+            appliedConfig = config;
+            profile.setConstraints(config.maxVelocity, config.maxAcceleration, config.maxJerk);
+        }
+        profile.setGoal(goal);
+        return profile.calculate(dt);
     }
 }
@@ -0,0 +1,179 @@
+package com.chopshop166.chopshoplib.motors;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+import java.util.Set;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorControllerConfiguration;
+import com.ctre.phoenix.motorcontrol.can.SlotConfiguration;
+
+/**
+ * Adds Talon settings to a {@link MotorConfigService} batch.
+ *
+ * This covers the gains in a slot and the settings commonly changed along with
+ * them: ramps, output limits, voltage compensation, Motion Magic and soft
+ * limits. Anything else needs a full configuration, see
+ * {@link #sameOutside(Object, Object, Set)}.
+ */
+final class TalonSettings {
+
+    /** The configuration fields written by {@link #addCommon}. */
+    static final Set<String> COMMON_FIELDS = Set.of("openloopRamp", "closedloopRamp", "peakOutputForward",
+            "peakOutputReverse", "nominalOutputForward", "nominalOutputReverse", "neutralDeadband",
+            "voltageCompSaturation", "motionCruiseVelocity", "motionAcceleration", "motionCurveStrength",
+            "forwardSoftLimitThreshold", "reverseSoftLimitThreshold", "forwardSoftLimitEnable",
+            "reverseSoftLimitEnable");
+
+    /** Not instantiable. */
+    private TalonSettings() {
+    }
+
+    /**
+     * A call that writes a Talon setting.
+     */
+    @FunctionalInterface
+    /* package */ interface TalonWriter {
+        /**
+         * Write the setting.
+         *
+         * @param timeoutMs How long to wait for a response, in ms.
+         * @return The error code from the Talon.
+         */
+        ErrorCode write(int timeoutMs);
+    }
+
+    /**
+     * Add the common settings of a configuration.
+     *
+     * @param batch  The batch to add to.
+     * @param talon  The Talon to configure.
+     * @param config The configuration to take the settings from.
+     * @param write  True to write the settings, false if the Talon already has
+     *               them.
+     */
+    static void addCommon(final MotorConfigService.Batch batch, final BaseMotorController talon,
+            final BaseMotorControllerConfiguration config, final boolean write) {
+        put(batch, write, "openloopRamp", config.openloopRamp,
+                ms -> talon.configOpenloopRamp(config.openloopRamp, ms));
+        put(batch, write, "closedloopRamp", config.closedloopRamp,
+                ms -> talon.configClosedloopRamp(config.closedloopRamp, ms));
+        put(batch, write, "peakOutputForward", config.peakOutputForward,
+                ms -> talon.configPeakOutputForward(config.peakOutputForward, ms));
+        put(batch, write, "peakOutputReverse", config.peakOutputReverse,
+                ms -> talon.configPeakOutputReverse(config.peakOutputReverse, ms));
+        put(batch, write, "nominalOutputForward", config.nominalOutputForward,
+                ms -> talon.configNominalOutputForward(config.nominalOutputForward, ms));
+        put(batch, write, "nominalOutputReverse", config.nominalOutputReverse,
+                ms -> talon.configNominalOutputReverse(config.nominalOutputReverse, ms));
+        put(batch, write, "neutralDeadband", config.neutralDeadband,
+                ms -> talon.configNeutralDeadband(config.neutralDeadband, ms));
+        put(batch, write, "voltageCompSaturation", config.voltageCompSaturation,
+                ms -> talon.configVoltageCompSaturation(config.voltageCompSaturation, ms));
+        put(batch, write, "motionCruiseVelocity", config.motionCruiseVelocity,
+                ms -> talon.configMotionCruiseVelocity(config.motionCruiseVelocity, ms));
+        put(batch, write, "motionAcceleration", config.motionAcceleration,
+                ms -> talon.configMotionAcceleration(config.motionAcceleration, ms));
+        put(batch, write, "motionCurveStrength", config.motionCurveStrength,
+                ms -> talon.configMotionSCurveStrength(config.motionCurveStrength, ms));
+        put(batch, write, "forwardSoftLimitThreshold", config.forwardSoftLimitThreshold,
+                ms -> talon.configForwardSoftLimitThreshold(config.forwardSoftLimitThreshold, ms));
+        put(batch, write, "reverseSoftLimitThreshold", config.reverseSoftLimitThreshold,
+                ms -> talon.configReverseSoftLimitThreshold(config.reverseSoftLimitThreshold, ms));
+        put(batch, write, "forwardSoftLimitEnable", config.forwardSoftLimitEnable,
+                ms -> talon.configForwardSoftLimitEnable(config.forwardSoftLimitEnable, ms));
+        put(batch, write, "reverseSoftLimitEnable", config.reverseSoftLimitEnable,
+                ms -> talon.configReverseSoftLimitEnable(config.reverseSoftLimitEnable, ms));
+    }
+
+    /**
+     * Add the gains for a hardware slot.
+     *
+     * @param batch   The batch to add to.
+     * @param talon   The Talon to configure.
+     * @param slotIdx The hardware slot.
+     * @param gains   The gains to put in the slot.
+     * @param write   True to write the gains, false if the Talon already has
+     *                them.
+     */
+    static void addSlot(final MotorConfigService.Batch batch, final BaseMotorController talon, final int slotIdx,
+            final SlotConfiguration gains, final boolean write) {
+        final String prefix = "slot" + slotIdx + ".";
+        put(batch, write, prefix + "kP", gains.kP,
+                ms -> talon.config_kP(slotIdx, gains.kP, ms));
+        put(batch, write, prefix + "kI", gains.kI,
+                ms -> talon.config_kI(slotIdx, gains.kI, ms));
+        put(batch, write, prefix + "kD", gains.kD,
+                ms -> talon.config_kD(slotIdx, gains.kD, ms));
+        put(batch, write, prefix + "kF", gains.kF,
+                ms -> talon.config_kF(slotIdx, gains.kF, ms));
+        put(batch, write, prefix + "integralZone", gains.integralZone,
+                ms -> talon.config_IntegralZone(slotIdx, gains.integralZone, ms));
+        put(batch, write, prefix + "allowableClosedloopError", gains.allowableClosedloopError,
+                ms -> talon.configAllowableClosedloopError(slotIdx, gains.allowableClosedloopError, ms));
+        put(batch, write, prefix + "maxIntegralAccumulator", gains.maxIntegralAccumulator,
+                ms -> talon.configMaxIntegralAccumulator(slotIdx, gains.maxIntegralAccumulator, ms));
+        put(batch, write, prefix + "closedLoopPeakOutput", gains.closedLoopPeakOutput,
+                ms -> talon.configClosedLoopPeakOutput(slotIdx, gains.closedLoopPeakOutput, ms));
+        put(batch, write, prefix + "closedLoopPeriod", gains.closedLoopPeriod,
+                ms -> talon.configClosedLoopPeriod(slotIdx, gains.closedLoopPeriod, ms));
+    }
+
+    /**
+     * Check if two configurations are the same, apart from some fields.
+     *
+     * Every public field is compared, including those of nested configurations
+     * such as the PID sets and filters. Only top-level fields can be skipped.
+     *
+     * @param first   The first configuration.
+     * @param second  The second configuration, of the same class.
+     * @param skipped The names of the top-level fields to ignore.
+     * @return True if every other field is equal.
+     */
+    static boolean sameOutside(final Object first, final Object second, final Set<String> skipped) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null || first.getClass() != second.getClass()) {
+            return false;
+        }
+        final Class<?> type = first.getClass();
+        if (type.isPrimitive() || type.isEnum() || first instanceof Number || first instanceof Boolean
+                || first instanceof CharSequence) {
+            return Objects.equals(first, second);
+        }
+        for (final Field field : type.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || skipped.contains(field.getName())) {
+                continue;
+            }
+            try {
+                if (!sameOutside(field.get(first), field.get(second), Set.of())) {
+                    return false;
+                }
+            } catch (IllegalAccessException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a single setting.
+     *
+     * @param batch  The batch to add to.
+     * @param write  True to write the setting, false if the Talon already has it.
+     * @param name   The setting name.
+     * @param value  The setting value.
+     * @param writer How to write the setting.
+     */
+    static void put(final MotorConfigService.Batch batch, final boolean write, final String name,
+            final Object value, final TalonWriter writer) {
+        if (write) {
+            batch.set(name, value, ms -> writer.write(ms) == ErrorCode.OK);
+        } else {
+            batch.assume(name, value);
+        }
+    }
+}
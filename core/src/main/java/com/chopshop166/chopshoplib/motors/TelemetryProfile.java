@@ -0,0 +1,80 @@
+package com.chopshop166.chopshoplib.motors;
+
+/**
+ * How often a CAN motor controller reports its state.
+ *
+ * Each profile gives a period for each group of data. Controllers that send
+ * several groups in the same frame use the shortest period of those groups.
+ */
+public enum TelemetryProfile {
+    /** The usual Spark MAX rates. */
+    DEFAULT(10, 20, 20, 20),
+    /** Fast position updates, for position control. */
+    FAST_POSITION(10, 10, 20, 100),
+    /** Velocity updates only, for flywheels and intakes. */
+    VELOCITY_ONLY(10, 500, 20, 100),
+    /** As little as possible, for motors that are rarely read. */
+    MINIMAL(20, 500, 500, 500);
+
+    /** The period of applied output and faults, in ms. */
+    private final int generalPeriod;
+    /** The period of position, in ms. */
+    private final int positionPeriod;
+    /** The period of velocity, in ms. */
+    private final int velocityPeriod;
+    /** The period of current, temperature and voltage, in ms. */
+    private final int diagnosticsPeriod;
+
+    /**
+     * Create the enum value.
+     *
+     * @param generalPeriod     The period of applied output and faults, in ms.
+     * @param positionPeriod    The period of position, in ms.
+     * @param velocityPeriod    The period of velocity, in ms.
+     * @param diagnosticsPeriod The period of current, temperature and voltage, in
+     *                          ms.
+     */
+    TelemetryProfile(final int generalPeriod, final int positionPeriod, final int velocityPeriod,
+            final int diagnosticsPeriod) {
+        this.generalPeriod = generalPeriod;
+        this.positionPeriod = positionPeriod;
+        this.velocityPeriod = velocityPeriod;
+        this.diagnosticsPeriod = diagnosticsPeriod;
+    }
+
+    /**
+     * Get the period of applied output and faults.
+     *
+     * @return The period, in ms.
+     */
+    public int getGeneralPeriod() {
+        return generalPeriod;
+    }
+
+    /**
+     * Get the period of position.
+     *
+     * @return The period, in ms.
+     */
+    public int getPositionPeriod() {
+        return positionPeriod;
+    }
+
+    /**
+     * Get the period of velocity.
+     *
+     * @return The period, in ms.
+     */
+    public int getVelocityPeriod() {
+        return velocityPeriod;
+    }
+
+    /**
+     * Get the period of current, temperature and voltage.
+     *
+     * @return The period, in ms.
+     */
+    public int getDiagnosticsPeriod() {
+        return diagnosticsPeriod;
+    }
+}
@@ -0,0 +1,137 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import edu.wpi.first.util.sendable.SendableBuilder;
+
+/**
+ * An {@link IEncoder} that reads another encoder once per loop.
+ *
+ * The wrapped encoder is read when its {@link EncoderCache} is refreshed, and
+ * every read in between returns those values. This avoids a call into the
+ * vendor library for each read, and keeps all reads in a loop consistent.
+ *
+ * The values are published as one immutable sample, so they can be read from
+ * any thread. They only change once per robot loop, so control loops that run
+ * faster than that, such as on a {@link
+ * com.chopshop166.chopshoplib.motors.ControlLoopExecutor}, should read the
+ * wrapped encoder instead.
+ */
+public class CachedEncoder implements IEncoder {
+
+    /** The wrapped encoder. */
+    private final IEncoder encoder;
+    /** The values from the last refresh. */
+    private volatile Sample sample;
+
+    /**
+     * Wrap an encoder, refreshing it with the shared cache.
+     *
+     * @param encoder The encoder to wrap.
+     */
+    public CachedEncoder(final IEncoder encoder) {
+        this(encoder, EncoderCache.getInstance());
+    }
+
+    /**
+     * Wrap an encoder.
+     *
+     * @param encoder The encoder to wrap.
+     * @param cache   The cache that refreshes this encoder.
+     */
+    public CachedEncoder(final IEncoder encoder, final EncoderCache cache) {
+        this.encoder = encoder;
+        this.sample = new Sample(encoder.getDistance(), encoder.getRate(), encoder.getAbsolutePosition(),
+                System.nanoTime());
+        cache.register(this);
+    }
+
+    /**
+     * Get the wrapped encoder.
+     *
+     * @return The wrapped encoder.
+     */
+    public IEncoder getRaw() {
+        return encoder;
+    }
+
+    /**
+     * Read the wrapped encoder.
+     *
+     * @param now The time of the refresh, in nanoseconds.
+     */
+    public void refresh(final long now) {
+        sample = new Sample(encoder.getDistance(), encoder.getRate(), encoder.getAbsolutePosition(), now);
+    }
+
+    /**
+     * Get when the values were read.
+     *
+     * @return The time of the last refresh, in nanoseconds.
+     */
+    public long getTimestamp() {
+        return sample.timestamp;
+    }
+
+    @Override
+    public void reset() {
+        encoder.reset();
+        final Sample current = sample;
+        sample = new Sample(0, current.rate, current.absolutePosition, current.timestamp);
+    }
+
+    @Override
+    public double getDistance() {
+        return sample.distance;
+    }
+
+    @Override
+    public double getRate() {
+        return sample.rate;
+    }
+
+    @Override
+    public double getAbsolutePosition() {
+        return sample.absolutePosition;
+    }
+
+    @Override
+    public double getUpdatePeriod() {
+        return encoder.getUpdatePeriod();
+    }
+
+    @Override
+    public void initSendable(final SendableBuilder builder) {
+        builder.setSmartDashboardType("Encoder");
+        builder.addDoubleProperty("Speed", this::getRate, null);
+        builder.addDoubleProperty("Distance", this::getDistance, null);
+    }
+
+    /**
+     * The values read in one refresh.
+     */
+    private static final class Sample {
+        /** The distance. */
+        private final double distance;
+        /** The rate. */
+        private final double rate;
+        /** The absolute position. */
+        private final double absolutePosition;
+        /** The time of the refresh, in nanoseconds. */
+        private final long timestamp;
+
+        /**
+         * Create a sample.
+         *
+         * @param distance         The distance.
+         * @param rate             The rate.
+         * @param absolutePosition The absolute position.
+         * @param timestamp        The time of the refresh, in nanoseconds.
+         */
+        private Sample(final double distance, final double rate, final double absolutePosition,
+                final long timestamp) {
+            this.distance = distance;
+            this.rate = rate;
+            this.absolutePosition = absolutePosition;
+            this.timestamp = timestamp;
+        }
+    }
+}
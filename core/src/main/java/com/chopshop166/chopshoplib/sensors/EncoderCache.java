@@ -0,0 +1,98 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of every {@link CachedEncoder}.
+ *
+ * Calling {@link #refresh()} once per loop reads every encoder from its
+ * device, so that the rest of the loop sees the same values with the same
+ * timestamp. {@link com.chopshop166.chopshoplib.commands.CommandRobot} refreshes
+ * the shared cache at the start of each loop, before any periodic function.
+ */
+public final class EncoderCache {
+
+    /** The shared instance. */
+    private static final EncoderCache INSTANCE = new EncoderCache();
+
+    /** The cached encoders. */
+    private final List<CachedEncoder> encoders = new CopyOnWriteArrayList<>();
+    /** The time of the last refresh, in nanoseconds. */
+    private volatile long timestamp;
+
+    /**
+     * Create a cache.
+     *
+     * Most code should use {@link #getInstance()}, which is refreshed by
+     * {@link com.chopshop166.chopshoplib.commands.CommandRobot}.
+     */
+    public EncoderCache() {
+        super();
+    }
+
+    /**
+     * Get the shared cache.
+     *
+     * @return The cache instance.
+     */
+    public static EncoderCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start refreshing an encoder, if it isn't already refreshed.
+     *
+     * @param encoder The encoder to refresh.
+     */
+    /* package */ void register(final CachedEncoder encoder) {
+        if (!encoders.contains(encoder)) {
+            encoders.add(encoder);
+        }
+    }
+
+    /**
+     * Stop refreshing an encoder.
+     *
+     * @param encoder The encoder to stop refreshing.
+     */
+    public void unregister(final CachedEncoder encoder) {
+        encoders.remove(encoder);
+    }
+
+    /**
+     * Get the cached encoders.
+     *
+     * @return An unmodifiable view of the encoders.
+     */
+    public List<CachedEncoder> getEncoders() {
+        return Collections.unmodifiableList(encoders);
+    }
+
+    /** Read every encoder from its device. */
+    public void refresh() {
+        refresh(System.nanoTime());
+    }
+
+    /**
+     * Read every encoder from its device.
+     *
+     * @param now The time of the refresh, in nanoseconds.
+     */
+    public void refresh(final long now) {
+        timestamp = now;
+        for (final CachedEncoder encoder : encoders) {
+            encoder.refresh(now);
+        }
+    }
+
+    /**
+     * Get the time of the last refresh.
+     *
+     * @return The time, in nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,86 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of every {@link PigeonGyro}.
+ *
+ * Calling {@link #refresh()} once per loop reads every gyro from its device, so
+ * that the rest of the loop sees the same values with the same timestamp.
+ * {@link com.chopshop166.chopshoplib.commands.CommandRobot} refreshes the
+ * shared cache at the start of each loop, along with the {@link EncoderCache}.
+ */
+public final class GyroCache {
+
+    /** The shared instance. */
+    private static final GyroCache INSTANCE = new GyroCache();
+
+    /** The cached gyros. */
+    private final List<PigeonGyro> gyros = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a cache.
+     *
+     * Most code should use {@link #getInstance()}, which is refreshed by
+     * {@link com.chopshop166.chopshoplib.commands.CommandRobot}.
+     */
+    public GyroCache() {
+        super();
+    }
+
+    /**
+     * Get the shared cache.
+     *
+     * @return The cache instance.
+     */
+    public static GyroCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start refreshing a gyro, if it isn't already refreshed.
+     *
+     * @param gyro The gyro to refresh.
+     */
+    /* package */ void register(final PigeonGyro gyro) {
+        if (!gyros.contains(gyro)) {
+            gyros.add(gyro);
+        }
+    }
+
+    /**
+     * Stop refreshing a gyro.
+     *
+     * @param gyro The gyro to stop refreshing.
+     */
+    public void unregister(final PigeonGyro gyro) {
+        gyros.remove(gyro);
+    }
+
+    /**
+     * Get the cached gyros.
+     *
+     * @return An unmodifiable view of the gyros.
+     */
+    public List<PigeonGyro> getGyros() {
+        return Collections.unmodifiableList(gyros);
+    }
+
+    /** Read every gyro from its device. */
+    public void refresh() {
+        refresh(System.nanoTime());
+    }
+
+    /**
+     * Read every gyro from its device.
+     *
+     * @param now The time of the refresh, in nanoseconds.
+     */
+    public void refresh(final long now) {
+        for (final PigeonGyro gyro : gyros) {
+            gyro.refresh(now);
+        }
+    }
+}
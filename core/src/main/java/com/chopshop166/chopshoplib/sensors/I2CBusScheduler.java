@@ -0,0 +1,486 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.chopshop166.chopshoplib.DoubleSampleBuffer;
+
+/**
+ * Polls I2C devices from a single shared thread.
+ *
+ * Only one transaction runs at a time, so devices on the same bus never
+ * collide, and adding devices does not add threads. Each device is polled at
+ * its own fixed rate against absolute deadlines, so the schedule does not drift,
+ * and devices are staggered so their transactions are evenly spaced.
+ *
+ * The shared instance starts its thread when the first device is registered.
+ * Other schedulers only poll once {@link #start()} is called, so devices can be
+ * driven by hand with {@link Device#pollNow()} in tests and benchmarks.
+ */
+public class I2CBusScheduler {
+
+    /** The default polling rate, in Hz. */
+    public static final double DEFAULT_RATE = 50.0;
+    /** How long to sleep when there is nothing to poll, in ns. */
+    private static final long IDLE_NANOS = 20_000_000L;
+    /** The number of transactions to keep latency statistics over. */
+    private static final int LATENCY_SAMPLES = 50;
+
+    /** The shared instance. */
+    private static final I2CBusScheduler INSTANCE = new I2CBusScheduler("I2C-Bus", true);
+
+    /** The name of the polling thread. */
+    private final String name;
+    /** Whether registering a device starts the polling thread. */
+    private final boolean autoStart;
+    /** The registered devices, in registration order. */
+    private final List<Device> devices = new CopyOnWriteArrayList<>();
+    /** A copy of {@link #devices} for the polling thread to iterate. */
+    private volatile Device[] snapshot = new Device[0];
+    /** One-off transactions waiting for the polling thread. */
+    private final Queue<FutureTask<?>> oneShots = new ConcurrentLinkedQueue<>();
+    /** The polling thread, if running. */
+    private Thread thread;
+    /** Whether the polling thread should keep running. */
+    private volatile boolean running;
+    /** Set when the device schedule needs to be recalculated. */
+    private volatile boolean rebalance;
+
+    /**
+     * Create a scheduler with its own polling thread.
+     *
+     * Most code should use {@link #getInstance()} so that all devices share one
+     * thread.
+     *
+     * The polling thread only runs once {@link #start()} is called.
+     *
+     * @param name The name of the polling thread.
+     */
+    public I2CBusScheduler(final String name) {
+        this(name, false);
+    }
+
+    /**
+     * Create a scheduler with its own polling thread.
+     *
+     * @param name      The name of the polling thread.
+     * @param autoStart Whether registering a device starts the polling thread.
+     */
+    public I2CBusScheduler(final String name, final boolean autoStart) {
+        this.name = name;
+        this.autoStart = autoStart;
+    }
+
+    /**
+     * Get the shared scheduler.
+     *
+     * @return The scheduler instance.
+     */
+    public static I2CBusScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a device to be polled.
+     *
+     * @param deviceName  The name of the device, for diagnostics.
+     * @param rate        The polling rate, in Hz.
+     * @param transaction The I2C transaction to perform each poll.
+     * @return A handle to the registered device.
+     */
+    public Device register(final String deviceName, final double rate, final Runnable transaction) {
+        final Device device = new Device(this, deviceName, rate, transaction);
+        synchronized (this) {
+            devices.add(device);
+            snapshot = devices.toArray(new Device[0]);
+        }
+        rebalance = true;
+        if (autoStart) {
+            start();
+        }
+        LockSupport.unpark(getThread());
+        return device;
+    }
+
+    /**
+     * Stop polling a device.
+     *
+     * @param device The device to remove.
+     */
+    public void unregister(final Device device) {
+        synchronized (this) {
+            devices.remove(device);
+            snapshot = devices.toArray(new Device[0]);
+        }
+        rebalance = true;
+        LockSupport.unpark(getThread());
+    }
+
+    /**
+     * Get the registered devices.
+     *
+     * @return An unmodifiable view of the devices.
+     */
+    public List<Device> getDevices() {
+        return Collections.unmodifiableList(devices);
+    }
+
+    /**
+     * Run a one-off transaction, such as a configuration command, between polls.
+     *
+     * This waits for the transaction to finish. If the polling thread is
+     * running, the transaction runs on it so that it can't overlap any polls.
+     * Otherwise it runs on the calling thread.
+     *
+     * @param transaction The transaction to run.
+     */
+    public void runExclusive(final Runnable transaction) {
+        callExclusive(() -> {
+            transaction.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a one-off transaction, such as a settings query, between polls.
+     *
+     * This waits for the transaction to finish. If the polling thread is
+     * running, the transaction runs on it so that it can't overlap any polls.
+     * Otherwise it runs on the calling thread.
+     *
+     * @param <T>         The result type.
+     * @param transaction The transaction to run.
+     * @return The result of the transaction.
+     */
+    public <T> T callExclusive(final Supplier<T> transaction) {
+        final FutureTask<T> task = new FutureTask<>(transaction::get);
+        final Thread current;
+        synchronized (this) {
+            current = thread;
+            if (current != null && current != Thread.currentThread()) {
+                oneShots.add(task);
+            }
+        }
+        if (current == null || current == Thread.currentThread()) {
+            return transaction.get();
+        }
+        LockSupport.unpark(current);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the I2C bus", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Start the polling thread, if it isn't already running. */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        rebalance = true;
+        thread = new Thread(this::run);
+        thread.setName(name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stop the polling thread and wait for the current transaction to finish. */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        // Anything queued while stopping still has a caller waiting on it
+        runOneShots();
+    }
+
+    /**
+     * Check if the polling thread is running.
+     *
+     * @return True if running.
+     */
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Get the polling thread.
+     *
+     * @return The thread, or null if not running.
+     */
+    public synchronized Thread getThread() {
+        return thread;
+    }
+
+    /** Polling loop used by the polling thread. */
+    private void run() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            final long now = System.nanoTime();
+            runOneShots();
+            if (rebalance) {
+                rebalance = false;
+                schedule(now);
+            }
+            Device next = null;
+            for (final Device device : snapshot) {
+                if (next == null || device.nextDeadline - next.nextDeadline < 0) {
+                    next = device;
+                }
+            }
+            if (next == null) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            } else if (next.nextDeadline - now > 0) {
+                LockSupport.parkNanos(this, next.nextDeadline - now);
+            } else {
+                next.poll();
+            }
+        }
+    }
+
+    /** Run any queued one-off transactions. */
+    private void runOneShots() {
+        FutureTask<?> task = oneShots.poll();
+        while (task != null) {
+            task.run();
+            task = oneShots.poll();
+        }
+    }
+
+    /**
+     * Spread the devices' deadlines evenly, starting at the given time.
+     *
+     * @param now The current time, in ns.
+     */
+    private void schedule(final long now) {
+        final Device[] current = snapshot;
+        long shortest = Long.MAX_VALUE;
+        for (final Device device : current) {
+            shortest = Math.min(shortest, device.periodNanos);
+        }
+        for (int i = 0; i < current.length; i++) {
+            current[i].nextDeadline = now + shortest * i / current.length;
+        }
+    }
+
+    /**
+     * A device being polled by the scheduler.
+     */
+    public static final class Device {
+        /** The owning scheduler. */
+        private final I2CBusScheduler scheduler;
+        /** The device name. */
+        private final String name;
+        /** The transaction to run. */
+        private final Runnable transaction;
+        /** Recent transaction latencies, in seconds. */
+        private final DoubleSampleBuffer latencies = new DoubleSampleBuffer(LATENCY_SAMPLES);
+        /** The polling period, in ns. */
+        private volatile long periodNanos;
+        /** When the next transaction is due, in ns. Only used by the polling thread. */
+        private long nextDeadline;
+        /** The latency of the last transaction, in seconds. */
+        private double lastLatency;
+        /** The total number of transactions. */
+        private long transactionCount;
+        /** The number of transactions that threw an exception. */
+        private long errorCount;
+        /** The exception thrown by the most recent failed transaction. */
+        private RuntimeException lastError;
+        /** The number of polls skipped because the bus fell behind. */
+        private long missedCount;
+
+        /**
+         * Create a device.
+         *
+         * @param scheduler   The owning scheduler.
+         * @param name        The device name.
+         * @param rate        The polling rate, in Hz.
+         * @param transaction The transaction to run.
+         */
+        private Device(final I2CBusScheduler scheduler, final String name, final double rate,
+                final Runnable transaction) {
+            this.scheduler = scheduler;
+            this.name = name;
+            this.transaction = transaction;
+            this.periodNanos = toPeriod(rate);
+        }
+
+        /**
+         * Get the device name.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Change how often the device is polled.
+         *
+         * @param rate The polling rate, in Hz.
+         */
+        public void setRate(final double rate) {
+            periodNanos = toPeriod(rate);
+            scheduler.rebalance = true;
+        }
+
+        /**
+         * Get how often the device is polled.
+         *
+         * @return The polling rate, in Hz.
+         */
+        public double getRate() {
+            return 1e9 / periodNanos;
+        }
+
+        /**
+         * Get the latency of the most recent transaction.
+         *
+         * @return The latency, in seconds.
+         */
+        public synchronized double getLastLatency() {
+            return lastLatency;
+        }
+
+        /**
+         * Get the average latency over recent transactions.
+         *
+         * @return The latency, in seconds, or NaN if nothing has been polled.
+         */
+        public synchronized double getAverageLatency() {
+            return latencies.mean();
+        }
+
+        /**
+         * Get the worst latency over recent transactions.
+         *
+         * @return The latency, in seconds, or NaN if nothing has been polled.
+         */
+        public synchronized double getMaxLatency() {
+            return latencies.max();
+        }
+
+        /**
+         * Get the number of transactions run.
+         *
+         * @return The transaction count.
+         */
+        public synchronized long getTransactionCount() {
+            return transactionCount;
+        }
+
+        /**
+         * Get the number of transactions that threw an exception.
+         *
+         * @return The error count.
+         */
+        public synchronized long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Get the exception thrown by the most recent failed transaction.
+         *
+         * @return The exception, or null if no transaction has failed.
+         */
+        public synchronized RuntimeException getLastError() {
+            return lastError;
+        }
+
+        /**
+         * Get the number of polls skipped because the bus fell behind.
+         *
+         * @return The missed poll count.
+         */
+        public synchronized long getMissedCount() {
+            return missedCount;
+        }
+
+        /**
+         * Run the transaction immediately, outside of the schedule.
+         *
+         * This is meant for driving a device by hand while the scheduler is
+         * stopped, such as in tests and benchmarks. Only the latency, transaction
+         * and error statistics are updated, not the schedule.
+         */
+        public void pollNow() {
+            transact();
+        }
+
+        /** Run the transaction and schedule the next one. */
+        private void poll() {
+            final long end = transact();
+            final long period = periodNanos;
+            nextDeadline += period;
+            if (end - nextDeadline >= 0) {
+                final long missed = (end - nextDeadline) / period + 1;
+                nextDeadline += missed * period;
+                synchronized (this) {
+                    missedCount += missed;
+                }
+            }
+        }
+
+        /**
+         * Run the transaction and record its latency and any exception.
+         *
+         * @return When the transaction finished, in ns.
+         */
+        private long transact() {
+            final long start = System.nanoTime();
+            RuntimeException error = null;
+            try {
+                transaction.run();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            final long end = System.nanoTime();
+
+            synchronized (this) {
+                lastLatency = (end - start) / 1e9;
+                latencies.add(lastLatency);
+                transactionCount++;
+                if (error != null) {
+                    errorCount++;
+                    lastError = error;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Convert a rate to a period.
+         *
+         * @param rate The rate, in Hz.
+         * @return The period, in ns.
+         */
+        private static long toPeriod(final double rate) {
+            if (rate <= 0) {
+                throw new IllegalArgumentException("Polling rate must be positive");
+            }
+            return (long) (1e9 / rate);
+        }
+    }
+}
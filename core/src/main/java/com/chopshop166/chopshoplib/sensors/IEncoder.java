@@ -38,6 +38,18 @@ public interface IEncoder extends Sendable, IAbsolutePosition {
         return 0;
     }
 
+    /**
+     * Get how old the reported values can be.
+     *
+     * Encoders on a CAN device only get new values when the device sends them, so
+     * a value may be up to one update period old.
+     *
+     * @return The update period in seconds, or 0 if values are read directly.
+     */
+    default double getUpdatePeriod() {
+        return 0;
+    }
+
     /**
      * Determine if the counter is not moving.
      *
@@ -0,0 +1,35 @@
+package com.chopshop166.chopshoplib.sensors;
+
+/**
+ * Interface for a device on the I2C bus.
+ *
+ * Transfers return true if they were aborted, to match WPILib.
+ */
+public interface II2C {
+
+    /**
+     * Write a single byte to a register on the device.
+     *
+     * @param registerAddress The register to write to.
+     * @param data            The byte to write.
+     * @return True if the transfer was aborted.
+     */
+    boolean write(int registerAddress, int data);
+
+    /**
+     * Write multiple bytes to the device.
+     *
+     * @param data The bytes to write.
+     * @return True if the transfer was aborted.
+     */
+    boolean writeBulk(byte[] data);
+
+    /**
+     * Read bytes from the device without writing a register address first.
+     *
+     * @param buffer The buffer to read into.
+     * @param count  The number of bytes to read.
+     * @return True if the transfer was aborted.
+     */
+    boolean readOnly(byte[] buffer, int count);
+}
@@ -3,42 +3,64 @@ package com.chopshop166.chopshoplib.sensors;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.DoubleSupplier;
 
-import com.chopshop166.chopshoplib.SampleBuffer;
-import com.google.common.math.Stats;
+import com.chopshop166.chopshoplib.SampleFilter;
+import com.chopshop166.chopshoplib.TimestampedSampleBuffer;
 
 import edu.wpi.first.networktables.NTSendableBuilder;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.util.sendable.Sendable;
 import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.util.sendable.SendableBuilder.BackendKind;
-import edu.wpi.first.wpilibj.I2C;
 import edu.wpi.first.wpilibj.I2C.Port;
+import edu.wpi.first.wpilibj.Timer;
 
 /**
  * LiDAR Sensor class.
  */
-public class Lidar implements Sendable {
+public class Lidar implements Sendable, AutoCloseable {
+
+    /** The rate the sensor measures at in continuous mode, in Hz. */
+    public static final double CONTINUOUS_RATE = 60.0;
+    /** The number of timestamped samples kept for lookup by time. */
+    public static final int HISTORY_LENGTH = 64;
+    /** The settings query command. */
+    private static final byte[] QUERY_SETTINGS = { 0x51 };
 
     /** Communication device. */
-    private I2C i2cDevice;
-    /** Thread for getting measurements. */
-    private Thread accessThread;
-    /** The measured distance, in mm. */
-    private double distanceMM;
-
-    /** True if the measurement is valid. */
-    private boolean isValid;
-    /** The measurement samples, for averaging. */
-    private SampleBuffer<Double> samples;
-
-    /** The standard deviation of the measurements. */
-    private double stdDevValue;
-    /** The limit for standard deviation. */
-    private double stdDevLimit = 100;
+    private final II2C i2cDevice;
+    /** Source of timestamps, in seconds. */
+    private final DoubleSupplier clock;
+    /** The scheduler that polls for measurements. */
+    private final I2CBusScheduler scheduler;
+    /** This sensor's registration with the scheduler. */
+    private final I2CBusScheduler.Device pollDevice;
+    /** The most recently published reading. */
+    private volatile Reading reading = new Reading(0, 0, false, 0, 0);
+    /** Set to have the polling thread clear the samples. */
+    private volatile boolean resetRequested;
+    /** True if the sensor is measuring continuously, so reads need no command. */
+    private volatile boolean streaming;
+
+    /** The filter that measurements go through. Only used by the polling thread. */
+    private volatile SampleFilter filter;
+    /** Buffer that distance readings are received into. */
+    private final byte[] dataBuffer = new byte[2];
+    /** View for decoding {@link #dataBuffer}. */
+    private final ByteBuffer dataView = ByteBuffer.wrap(dataBuffer);
+    /** Buffer for the settings query response. */
+    private final byte[] settingsBuffer = new byte[23];
+    /** Buffer for the mode change command. */
+    private final byte[] modeCommand = { 0x4d, 0 };
 
-    /** Synchronization object. */
-    private final Object syncObject = new Object();
+    /** The limit for standard deviation. */
+    private volatile double stdDevLimit = 100;
+    /** Recent accepted measurements, in mm, by FPGA time. */
+    private final TimestampedSampleBuffer history = new TimestampedSampleBuffer(HISTORY_LENGTH);
+    /** Lock for {@link #history}, which readers access optimistically. */
+    private final StampedLock historyLock = new StampedLock();
 
     /**
      * The scale to return measurements in.
@@ -48,18 +70,49 @@ public class Lidar implements Sendable {
     }
 
     /**
-     * Polling loop used by poll thread.
+     * A single published measurement.
+     *
+     * This structure is immutable, so all of its values are always consistent
+     * with each other.
      */
-    private void poll() {
-        while (true) {
-            /* Get the distance from the sensor */
-            readDistance();
-            /* Sensor updates at 60Hz, but we'll run this at 50 since the math is nicer */
-            try {
-                Thread.sleep(20);
-            } catch (InterruptedException e) {
-                /* We stop for nothing! */
-            }
+    public static final class Reading {
+        /** The measured distance, in mm. */
+        public final double distanceMM;
+        /** The standard deviation of the measurements. */
+        public final double standardDeviation;
+        /** True if the measurement is valid. */
+        public final boolean isValid;
+        /** The FPGA time of the sample, in seconds. */
+        public final double timestamp;
+        /** The sample number, counting from 1. Zero means nothing has been read yet. */
+        public final long sequence;
+
+        /**
+         * Constructor.
+         *
+         * @param distanceMM        The measured distance, in mm.
+         * @param standardDeviation The standard deviation of the measurements.
+         * @param isValid           True if the measurement is valid.
+         * @param timestamp         The FPGA time of the sample, in seconds.
+         * @param sequence          The sample number, counting from 1.
+         */
+        public Reading(final double distanceMM, final double standardDeviation, final boolean isValid,
+                final double timestamp, final long sequence) {
+            this.distanceMM = distanceMM;
+            this.standardDeviation = standardDeviation;
+            this.isValid = isValid;
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Get the distance.
+         *
+         * @param meas The unit of measure to return in
+         * @return The distance
+         */
+        public double getDistance(final MeasurementType meas) {
+            return meas == MeasurementType.INCHES ? distanceMM / 25.4 : distanceMM;
         }
     }
 
@@ -355,6 +408,54 @@ public class Lidar implements Sendable {
 
     }
 
+    /**
+     * Create a LIDAR object
+     *
+     * @param device    The I2C device to communicate with
+     * @param name      The name of the sensor, for diagnostics
+     * @param filter    The filter to combine measurements with
+     * @param scheduler The scheduler to poll the sensor with, which polls once
+     *                  started
+     * @param clock     The source of timestamps, in seconds
+     */
+    public Lidar(final II2C device, final String name, final SampleFilter filter, final I2CBusScheduler scheduler,
+            final DoubleSupplier clock) {
+        super();
+        i2cDevice = device;
+        this.clock = clock;
+
+        // Objects related to statistics
+        this.filter = filter;
+
+        /* Sensor updates at 60Hz, but we'll run this at 50 since the math is nicer */
+        this.scheduler = scheduler;
+        pollDevice = scheduler.register(name, I2CBusScheduler.DEFAULT_RATE, this::readDistance);
+    }
+
+    /**
+     * Create a LIDAR object
+     *
+     * @param device The I2C device to communicate with
+     * @param filter The filter to combine measurements with
+     */
+    public Lidar(final II2C device, final SampleFilter filter) {
+        this(device, "LiDAR", filter, I2CBusScheduler.getInstance(), Timer::getFPGATimestamp);
+    }
+
+    /**
+     * Create a LIDAR object
+     *
+     * @param port      The I2C port the sensor is connected to
+     * @param kAddress  The I2C address the sensor is found at
+     * @param filter    The filter to combine measurements with
+     * @param scheduler The scheduler to poll the sensor with, which polls once
+     *                  started
+     */
+    public Lidar(final Port port, final int kAddress, final SampleFilter filter, final I2CBusScheduler scheduler) {
+        this(new WI2C(port, kAddress), String.format("LiDAR-0x%x", kAddress), filter, scheduler,
+                Timer::getFPGATimestamp);
+    }
+
     /**
      * Create a LIDAR object
      *
@@ -363,15 +464,18 @@ public class Lidar implements Sendable {
      * @param averageOver The number of samples to average
      */
     public Lidar(final Port port, final int kAddress, final int averageOver) {
-        super();
-        i2cDevice = new I2C(port, kAddress);
-
-        // Objects related to statistics
-        samples = new SampleBuffer<>(averageOver);
+        this(port, kAddress, SampleFilter.mean(averageOver), I2CBusScheduler.getInstance());
+    }
 
-        accessThread = new Thread(this::poll);
-        accessThread.setName(String.format("LiDAR-0x%x", kAddress));
-        accessThread.start();
+    /**
+     * Create a LIDAR object
+     *
+     * @param port     The I2C port the sensor is connected to
+     * @param kAddress The I2C address the sensor is found at
+     * @param filter   The filter to combine measurements with
+     */
+    public Lidar(final Port port, final int kAddress, final SampleFilter filter) {
+        this(port, kAddress, filter, I2CBusScheduler.getInstance());
     }
 
     /**
@@ -392,18 +496,39 @@ public class Lidar implements Sendable {
      * @param sdLimit The maximum standard deviation expected
      */
     public void setStandardDeviationLimit(final double sdLimit) {
-        synchronized (syncObject) {
-            stdDevLimit = sdLimit;
-        }
+        stdDevLimit = sdLimit;
+    }
+
+    /**
+     * Change the filter that measurements go through.
+     *
+     * The filter is used by the polling thread from its next measurement, and
+     * should not be used by anything else.
+     *
+     * @param filter The new filter.
+     */
+    public void setFilter(final SampleFilter filter) {
+        this.filter = filter;
     }
 
     /**
      * Clear the samples
+     *
+     * The samples are cleared by the polling thread before its next measurement.
      */
     public void reset() {
-        synchronized (syncObject) {
-            samples.clear();
-        }
+        resetRequested = true;
+    }
+
+    /**
+     * Get the most recent reading.
+     *
+     * This never blocks, and all values in the reading come from the same sample.
+     *
+     * @return The reading.
+     */
+    public Reading getReading() {
+        return reading;
     }
 
     /**
@@ -413,12 +538,11 @@ public class Lidar implements Sendable {
      * @return An Optional containing the distance if it exists
      */
     public Optional<Double> getDistanceOptional(final MeasurementType meas) {
-        synchronized (syncObject) {
-            if (!isValid) {
-                return Optional.empty();
-            }
+        final Reading current = reading;
+        if (!current.isValid) {
+            return Optional.empty();
         }
-        return Optional.of(getDistance(meas));
+        return Optional.of(current.getDistance(meas));
     }
 
     /**
@@ -428,55 +552,173 @@ public class Lidar implements Sendable {
      * @return The distance
      */
     public double getDistance(final MeasurementType meas) {
+        return reading.getDistance(meas);
+    }
+
+    /**
+     * Get the measured distance at a given time.
+     *
+     * This uses the unfiltered measurements accepted by the filter, linearly
+     * interpolated between the samples on either side of the time. Times outside
+     * of the recent history get the oldest or newest measurement.
+     *
+     * @param timestampSeconds The FPGA time to look up, in seconds
+     * @param meas             The unit of measure to return in
+     * @return The distance, or NaN if nothing has been measured
+     */
+    public double getDistanceAt(final double timestampSeconds, final MeasurementType meas) {
+        long stamp = historyLock.tryOptimisticRead();
+        double distanceMM = history.getAt(timestampSeconds);
+        if (!historyLock.validate(stamp)) {
+            stamp = historyLock.readLock();
+            try {
+                distanceMM = history.getAt(timestampSeconds);
+            } finally {
+                historyLock.unlockRead(stamp);
+            }
+        }
         return meas == MeasurementType.INCHES ? distanceMM / 25.4 : distanceMM;
     }
 
     private void readDistance() {
-        final byte[] dataBuffer = new byte[2];
-
-        i2cDevice.write(0x44, 0x1);
-        i2cDevice.readOnly(dataBuffer, 2);
-        final ByteBuffer bbConvert = ByteBuffer.wrap(dataBuffer);
-        synchronized (syncObject) {
-            samples.add((double) bbConvert.getShort());
-            final Stats stats = Stats.of(samples);
-            distanceMM = stats.mean();
-            // If the standard deviation is really high then the sensor likely doesn't have
-            // a valid reading.
-            stdDevValue = stats.populationStandardDeviation();
-            isValid = stdDevValue < stdDevLimit;
+        final SampleFilter current = filter;
+        if (resetRequested) {
+            resetRequested = false;
+            current.reset();
+            final long stamp = historyLock.writeLock();
+            history.clear();
+            historyLock.unlockWrite(stamp);
+        }
+        if (!streaming && i2cDevice.write(0x44, 0x1)) {
+            return;
         }
+        if (i2cDevice.readOnly(dataBuffer, 2)) {
+            // The transfer was aborted, so there's no new sample
+            return;
+        }
+        final double timestamp = clock.getAsDouble();
+        final short sample = dataView.getShort(0);
+        if (current.add(sample)) {
+            final long stamp = historyLock.writeLock();
+            history.add(timestamp, sample);
+            historyLock.unlockWrite(stamp);
+        }
+        // If the standard deviation is really high then the sensor likely doesn't have
+        // a valid reading.
+        final double stdDev = current.getDeviation();
+        reading = new Reading(current.getValue(), stdDev, stdDev < stdDevLimit, timestamp, reading.sequence + 1);
     }
 
     /**
      * Change the mode of the LiDAR sensor
      *
+     * In continuous mode the sensor measures on its own, so readings are streamed
+     * without sending a measurement command, at {@link #CONTINUOUS_RATE}. If the
+     * sensor's settings show that it did not accept continuous mode, or the
+     * settings can't be read, this falls back to single step mode.
+     *
+     * The commands run between polls, so they never interleave with a reading.
+     *
      * @param mode Which mode to change to
      */
     public void setMode(final Settings.OpMode mode) {
-        final byte modeByte = mode.toByte();
-        i2cDevice.writeBulk(new byte[] { 0x4d, modeByte });
+        scheduler.runExclusive(() -> applyMode(mode));
+    }
+
+    /**
+     * Check if readings are being streamed in continuous mode.
+     *
+     * @return True if streaming.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Change the mode and decide how to poll.
+     *
+     * @param mode Which mode to change to
+     */
+    private void applyMode(final Settings.OpMode mode) {
+        final boolean aborted = writeMode(mode);
+        boolean continuous = false;
+        if (mode == Settings.OpMode.CONTINOUS && !aborted) {
+            final Optional<Settings> settings = readSettings();
+            continuous = settings.isPresent() && settings.get().operationMode == Settings.OpMode.CONTINOUS;
+        }
+        streaming = continuous;
+        pollDevice.setRate(continuous ? CONTINUOUS_RATE : I2CBusScheduler.DEFAULT_RATE);
+        if (mode == Settings.OpMode.CONTINOUS && !continuous) {
+            writeMode(Settings.OpMode.SINGLESTEP);
+        }
+    }
+
+    /**
+     * Send the mode change command.
+     *
+     * @param mode Which mode to change to
+     * @return True if the transfer was aborted
+     */
+    private boolean writeMode(final Settings.OpMode mode) {
+        modeCommand[1] = mode.toByte();
+        return i2cDevice.writeBulk(modeCommand);
     }
 
     /**
      * Get the settings from the LiDAR.
-     * 
+     *
+     * The query runs between polls, so the response can't be mixed up with a
+     * reading.
+     *
      * @return A populated {@link Settings} object.
+     * @throws IllegalStateException If the transfer was aborted.
      */
     public Settings querySettings() {
-        final byte[] dataBuffer = new byte[23];
-        i2cDevice.writeBulk(new byte[] { 0x51 });
-        i2cDevice.readOnly(dataBuffer, 23);
-        return new Settings(dataBuffer);
+        return scheduler.callExclusive(this::readSettings)
+                .orElseThrow(() -> new IllegalStateException("LiDAR settings query was aborted"));
+    }
+
+    /**
+     * Read the settings from the LiDAR.
+     *
+     * @return The settings, or empty if the transfer was aborted.
+     */
+    private Optional<Settings> readSettings() {
+        if (i2cDevice.writeBulk(QUERY_SETTINGS) || i2cDevice.readOnly(settingsBuffer, settingsBuffer.length)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Settings(settingsBuffer));
     }
 
     /**
      * Get the thread used for polling this LiDAR.
-     * 
-     * @return The {@link Thread} object.
+     *
+     * Deprecated. The thread is shared by all devices on the scheduler, use
+     * {@link #getPollDevice()} instead.
+     *
+     * @return The {@link Thread} object, or null if the scheduler is stopped.
      */
+    @Deprecated
     public Thread getAccessThread() {
-        return accessThread;
+        return scheduler.getThread();
+    }
+
+    /**
+     * Get this sensor's registration with the polling scheduler.
+     *
+     * This can be used to change the polling rate and to read transaction
+     * latency.
+     *
+     * @return The scheduled device.
+     */
+    public I2CBusScheduler.Device getPollDevice() {
+        return pollDevice;
+    }
+
+    /** Stop polling this sensor. */
+    @Override
+    public void close() {
+        scheduler.unregister(pollDevice);
     }
 
     @Override
@@ -487,12 +729,16 @@ public class Lidar implements Sendable {
             final NetworkTableEntry mmDistance = ntbuilder.getEntry("Distance");
             final NetworkTableEntry standardDeviation = ntbuilder.getEntry("Standard Deviation");
             final NetworkTableEntry validityEntry = ntbuilder.getEntry("isValid");
+            final NetworkTableEntry latencyEntry = ntbuilder.getEntry("Latency");
+            final NetworkTableEntry errorEntry = ntbuilder.getEntry("Last Error");
             ntbuilder.setUpdateTable(() -> {
-                mmDistance.setDouble(getDistance(MeasurementType.MILLIMETERS));
-                synchronized (syncObject) {
-                    validityEntry.setBoolean(isValid);
-                    standardDeviation.setDouble(stdDevValue);
-                }
+                final Reading current = reading;
+                mmDistance.setDouble(current.distanceMM);
+                validityEntry.setBoolean(current.isValid);
+                standardDeviation.setDouble(current.standardDeviation);
+                latencyEntry.setDouble(pollDevice.getAverageLatency());
+                final RuntimeException error = pollDevice.getLastError();
+                errorEntry.setString(error == null ? "" : error.toString());
             });
         }
     }
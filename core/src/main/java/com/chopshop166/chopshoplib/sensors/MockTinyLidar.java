@@ -0,0 +1,196 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import com.chopshop166.chopshoplib.sensors.Lidar.Settings.OpMode;
+
+/**
+ * A simulated tinyLiDAR that answers the sensor's I2C protocol.
+ *
+ * Supports the measure (0x44), mode (0x4d) and settings (0x51) commands, with
+ * configurable noise, transaction latency and dropouts.
+ */
+public class MockTinyLidar implements II2C {
+
+    /** Source of noise and dropouts. */
+    private final Random random;
+    /** The true distance, in mm. */
+    private volatile double distanceMM;
+    /** The standard deviation of the measurement noise, in mm. */
+    private volatile double noiseMM;
+    /** The time each transfer takes, in seconds. */
+    private volatile double latency;
+    /** The probability that a transfer is aborted. */
+    private volatile double dropoutRate;
+    /** Whether the sensor accepts continuous mode. */
+    private volatile boolean acceptsContinuous = true;
+    /** The current operation mode. */
+    private volatile OpMode mode = OpMode.SINGLESTEP;
+    /** The last measurement, in mm. */
+    private short measurement;
+    /** True if the next read should return the settings. */
+    private boolean settingsRequested;
+
+    /** Create a simulated sensor with a fixed random seed. */
+    public MockTinyLidar() {
+        this(0);
+    }
+
+    /**
+     * Create a simulated sensor.
+     *
+     * @param seed The seed for noise and dropouts.
+     */
+    public MockTinyLidar(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Set the true distance.
+     *
+     * @param distanceMM The distance, in mm.
+     */
+    public void setDistance(final double distanceMM) {
+        this.distanceMM = distanceMM;
+    }
+
+    /**
+     * Set the measurement noise.
+     *
+     * @param noiseMM The standard deviation of the noise, in mm.
+     */
+    public void setNoise(final double noiseMM) {
+        this.noiseMM = noiseMM;
+    }
+
+    /**
+     * Set how long each transfer takes.
+     *
+     * @param latency The latency, in seconds.
+     */
+    public void setLatency(final double latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Set how often transfers are aborted.
+     *
+     * @param dropoutRate The probability of a dropout, from 0 to 1.
+     */
+    public void setDropoutRate(final double dropoutRate) {
+        this.dropoutRate = dropoutRate;
+    }
+
+    /**
+     * Set whether the sensor accepts continuous mode.
+     *
+     * @param accepts False to simulate a sensor that stays in single step.
+     */
+    public void setAcceptsContinuous(final boolean accepts) {
+        this.acceptsContinuous = accepts;
+    }
+
+    /**
+     * Get the current operation mode.
+     *
+     * @return The mode.
+     */
+    public OpMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public synchronized boolean write(final int registerAddress, final int data) {
+        if (transfer()) {
+            return true;
+        }
+        if (registerAddress == 0x44) {
+            measure();
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean writeBulk(final byte[] data) {
+        if (transfer()) {
+            return true;
+        }
+        if (data.length >= 1 && data[0] == 0x44) {
+            measure();
+        } else if (data.length >= 2 && data[0] == 0x4d) {
+            final OpMode requested = OpMode.fromByte(data[1]);
+            if (requested == OpMode.SINGLESTEP || requested == OpMode.CONTINOUS && acceptsContinuous) {
+                mode = requested;
+            }
+        } else if (data.length >= 1 && data[0] == 0x51) {
+            settingsRequested = true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean readOnly(final byte[] buffer, final int count) {
+        if (transfer()) {
+            return true;
+        }
+        if (settingsRequested) {
+            settingsRequested = false;
+            fillSettings(buffer, count);
+        } else {
+            if (mode == OpMode.CONTINOUS) {
+                measure();
+            }
+            if (count >= 2) {
+                buffer[0] = (byte) (measurement >> 8);
+                buffer[1] = (byte) measurement;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Simulate the time a transfer takes, and whether it drops out.
+     *
+     * @return True if the transfer was aborted.
+     */
+    private boolean transfer() {
+        final double delay = latency;
+        if (delay > 0) {
+            LockSupport.parkNanos((long) (delay * 1e9));
+        }
+        return random.nextDouble() < dropoutRate;
+    }
+
+    /** Take a new measurement. */
+    private void measure() {
+        final double value = distanceMM + random.nextGaussian() * noiseMM;
+        measurement = (short) Math.max(0, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+
+    /**
+     * Write a settings response.
+     *
+     * @param buffer The buffer to write into.
+     * @param count  The number of bytes requested.
+     */
+    private void fillSettings(final byte[] buffer, final int count) {
+        final byte[] response = new byte[23];
+        response[0] = mode.toByte();
+        response[1] = Lidar.Settings.PresetConfiguration.TINYLIDAR.toByte();
+        // Signal rate limit of 0.25 MCPS
+        response[2] = 0x40;
+        response[4] = 60;
+        // Timing budget of 33 ms
+        response[6] = 33;
+        response[7] = 0x0e;
+        response[8] = 1;
+        response[9] = 4;
+        response[11] = 1;
+        response[12] = 0;
+        response[13] = 4;
+        // Watchdog on, LED on measurement
+        response[14] = 0x5;
+        System.arraycopy(response, 0, buffer, 0, Math.min(count, response.length));
+    }
+}
@@ -1,5 +1,7 @@
 package com.chopshop166.chopshoplib.sensors;
 
+import java.util.function.LongSupplier;
+
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 import com.ctre.phoenix.sensors.PigeonIMU;
 
@@ -9,22 +11,72 @@ import edu.wpi.first.wpilibj.interfaces.Gyro;
 
 /**
  * Gyro Base wrapper for the Pigeon IMU
+ *
+ * The heading, rates and orientation are read together into reused arrays. A
+ * getter reads the Pigeon again once the sample is a sample period old, and
+ * otherwise returns the sample without calling into the vendor library or
+ * allocating. The gyro is also refreshed with its {@link GyroCache}, which
+ * {@link com.chopshop166.chopshoplib.commands.CommandRobot} does at the start of
+ * each loop, so that every read in a loop sees the same sample.
  */
 public class PigeonGyro implements Gyro, Sendable {
 
+    /** The default time a sample is reused for, in seconds. */
+    public static final double DEFAULT_SAMPLE_PERIOD = 0.01;
+
     /** The wrapped object. */
     final private PigeonIMU gyro;
+    /** The cache that refreshes this gyro. */
+    final private GyroCache cache;
     /** Boolean to control inverted output */
     private boolean inverted;
+    /** The raw rates around each axis, in degrees per second. */
+    final private double[] rawRates = new double[3];
+    /** The yaw, pitch and roll, in degrees. */
+    final private double[] yawPitchRoll = new double[3];
+    /** The fused heading, in degrees. */
+    private double fusedHeading;
+    /** The time source, in ns. */
+    final private LongSupplier clock;
+    /** How long a sample is reused for, in ns. */
+    private long samplePeriodNanos = (long) (DEFAULT_SAMPLE_PERIOD * 1e9);
+    /** Whether there is a sample. */
+    private boolean hasSample;
+    /** When the last sample was taken, in ns. */
+    private long sampleTime;
 
     /**
-     * Create the wrapper.
+     * Create the wrapper, refreshing it with the shared cache.
      * 
      * @param gyro The object to wrap.
      */
     public PigeonGyro(final PigeonIMU gyro) {
+        this(gyro, GyroCache.getInstance());
+    }
+
+    /**
+     * Create the wrapper.
+     * 
+     * @param gyro  The object to wrap.
+     * @param cache The cache that refreshes this gyro.
+     */
+    public PigeonGyro(final PigeonIMU gyro, final GyroCache cache) {
+        this(gyro, cache, System::nanoTime);
+    }
+
+    /**
+     * Create the wrapper.
+     * 
+     * @param gyro  The object to wrap.
+     * @param cache The cache that refreshes this gyro.
+     * @param clock The time source, in ns.
+     */
+    /* package */ PigeonGyro(final PigeonIMU gyro, final GyroCache cache, final LongSupplier clock) {
         super();
         this.gyro = gyro;
+        this.cache = cache;
+        this.clock = clock;
+        cache.register(this);
     }
 
     /**
@@ -54,9 +106,93 @@ public class PigeonGyro implements Gyro, Sendable {
         this.inverted = isInverted;
     }
 
+    /**
+     * Set how long a sample is reused for.
+     *
+     * This should be shorter than the robot loop, so that each loop gets a new
+     * sample. A period of 0 reads the Pigeon on every call.
+     *
+     * @param period The time to reuse a sample for, in seconds.
+     */
+    public void setSamplePeriod(final double period) {
+        if (!(period >= 0)) {
+            throw new IllegalArgumentException("Sample period must not be negative");
+        }
+        this.samplePeriodNanos = (long) (period * 1e9);
+    }
+
+    /** Read everything from the Pigeon now. */
+    public void refresh() {
+        refresh(clock.getAsLong());
+    }
+
+    /**
+     * Read everything from the Pigeon.
+     *
+     * @param now The time of the refresh, in ns.
+     */
+    public void refresh(final long now) {
+        fusedHeading = readDevice(rawRates, yawPitchRoll);
+        sampleTime = now;
+        hasSample = true;
+    }
+
+    /**
+     * Get when the current sample was taken.
+     *
+     * @return The time of the sample, in ns, from {@link System#nanoTime()}.
+     */
+    public long getSampleTime() {
+        refreshIfStale();
+        return sampleTime;
+    }
+
+    /**
+     * Get the yaw.
+     *
+     * @return The yaw, in degrees.
+     */
+    public double getYaw() {
+        refreshIfStale();
+        return inverted ? -yawPitchRoll[0] : yawPitchRoll[0];
+    }
+
+    /**
+     * Get the pitch.
+     *
+     * @return The pitch, in degrees.
+     */
+    public double getPitch() {
+        refreshIfStale();
+        return yawPitchRoll[1];
+    }
+
+    /**
+     * Get the roll.
+     *
+     * @return The roll, in degrees.
+     */
+    public double getRoll() {
+        refreshIfStale();
+        return yawPitchRoll[2];
+    }
+
+    /**
+     * Get the raw rate around an axis.
+     *
+     * This is not affected by {@link #setInverted(boolean)}.
+     *
+     * @param axis The axis, 0 for x, 1 for y or 2 for z.
+     * @return The rate, in degrees per second.
+     */
+    public double getRawRate(final int axis) {
+        refreshIfStale();
+        return rawRates[axis];
+    }
+
     @Override
     public void close() throws Exception {
-        // NoOp
+        cache.unregister(this);
     }
 
     /**
@@ -65,6 +201,7 @@ public class PigeonGyro implements Gyro, Sendable {
     @Override
     public void reset() {
         gyro.setFusedHeading(0);
+        hasSample = false;
     }
 
     /**
@@ -72,9 +209,8 @@ public class PigeonGyro implements Gyro, Sendable {
      */
     @Override
     public double getRate() {
-        final double[] xyz = new double[3];
-        gyro.getRawGyro(xyz);
-        return inverted ? -xyz[2] : xyz[2];
+        refreshIfStale();
+        return inverted ? -rawRates[2] : rawRates[2];
     }
 
     /**
@@ -82,7 +218,8 @@ public class PigeonGyro implements Gyro, Sendable {
      */
     @Override
     public double getAngle() {
-        return inverted ? -gyro.getFusedHeading() : gyro.getFusedHeading();
+        refreshIfStale();
+        return inverted ? -fusedHeading : fusedHeading;
     }
 
     @Override
@@ -90,6 +227,27 @@ public class PigeonGyro implements Gyro, Sendable {
         // NoOp
     }
 
+    /** Take a new sample if the current one is too old. */
+    private void refreshIfStale() {
+        final long now = clock.getAsLong();
+        if (!hasSample || now - sampleTime >= samplePeriodNanos) {
+            refresh(now);
+        }
+    }
+
+    /**
+     * Read everything from the Pigeon.
+     *
+     * @param rates The array to put the raw rates in.
+     * @param ypr   The array to put the yaw, pitch and roll in.
+     * @return The fused heading, in degrees.
+     */
+    /* package */ double readDevice(final double[] rates, final double[] ypr) {
+        gyro.getRawGyro(rates);
+        gyro.getYawPitchRoll(ypr);
+        return gyro.getFusedHeading();
+    }
+
     @Override
     public void initSendable(final SendableBuilder builder) {
         builder.setSmartDashboardType("Gyro");
@@ -10,7 +10,7 @@ import edu.wpi.first.util.sendable.SendableBuilder;
  * to implement
  * WPIlib interfaces.
  */
-public class SparkMaxEncoder implements IEncoder {
+public class SparkMaxEncoder extends StatusFrameEncoder {
 
     /** The wrapped encoder. */
     private final RelativeEncoder encoder;
@@ -0,0 +1,57 @@
+package com.chopshop166.chopshoplib.sensors;
+
+/**
+ * An encoder whose values are sent by a CAN device in periodic status frames.
+ *
+ * The values are only as fresh as the last frame, so this records how often
+ * the device sends them and reports that through {@link #getUpdatePeriod()}.
+ */
+public abstract class StatusFrameEncoder implements IEncoder {
+
+    /** The default time between updates from the device, in seconds. */
+    public static final double DEFAULT_UPDATE_PERIOD = 0.02;
+
+    /** The time between position updates from the device, in seconds. */
+    private volatile double positionUpdatePeriod = DEFAULT_UPDATE_PERIOD;
+    /** The time between velocity updates from the device, in seconds. */
+    private volatile double velocityUpdatePeriod = DEFAULT_UPDATE_PERIOD;
+
+    /**
+     * Set how often the device sends new values.
+     * 
+     * This does not change the device, it only records how fresh the values are.
+     * 
+     * @param positionPeriod The time between position updates, in seconds.
+     * @param velocityPeriod The time between velocity updates, in seconds.
+     */
+    public void setUpdatePeriods(final double positionPeriod, final double velocityPeriod) {
+        if (positionPeriod < 0 || velocityPeriod < 0) {
+            throw new IllegalArgumentException("Update periods cannot be negative");
+        }
+        this.positionUpdatePeriod = positionPeriod;
+        this.velocityUpdatePeriod = velocityPeriod;
+    }
+
+    /**
+     * Get how often the device sends new positions.
+     * 
+     * @return The time between position updates, in seconds.
+     */
+    public double getPositionUpdatePeriod() {
+        return positionUpdatePeriod;
+    }
+
+    /**
+     * Get how often the device sends new velocities.
+     * 
+     * @return The time between velocity updates, in seconds.
+     */
+    public double getVelocityUpdatePeriod() {
+        return velocityUpdatePeriod;
+    }
+
+    @Override
+    public double getUpdatePeriod() {
+        return Math.max(positionUpdatePeriod, velocityUpdatePeriod);
+    }
+}
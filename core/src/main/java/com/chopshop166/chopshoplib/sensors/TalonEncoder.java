@@ -8,7 +8,7 @@ import edu.wpi.first.util.sendable.SendableBuilder;
 /**
  * An Encoder attached to the Talon SRX.
  */
-public class TalonEncoder implements IEncoder {
+public class TalonEncoder extends StatusFrameEncoder {
 
     /** Reference to the base Talon SRX. */
     private final BaseTalon talon;
@@ -0,0 +1,21 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import edu.wpi.first.wpilibj.I2C;
+
+/**
+ * An instance of {@link I2C} that adheres to {@link II2C}.
+ *
+ * The constructor arguments are the same as the ones in the base class.
+ */
+public class WI2C extends I2C implements II2C {
+
+    /**
+     * Create the device.
+     *
+     * @param port          The I2C port the device is connected to.
+     * @param deviceAddress The address of the device on the bus.
+     */
+    public WI2C(final Port port, final int deviceAddress) {
+        super(port, deviceAddress);
+    }
+}
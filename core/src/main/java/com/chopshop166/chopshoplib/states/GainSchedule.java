@@ -0,0 +1,169 @@
+package com.chopshop166.chopshoplib.states;
+
+import java.util.Arrays;
+
+/**
+ * A table of {@link PIDValues} keyed by an operating point.
+ *
+ * Gains between two entries are linearly interpolated, and gains outside the
+ * table use the nearest entry. Looking up gains with {@link #update(double)}
+ * doesn't allocate, so it can be used every control loop. The results are kept
+ * in the schedule, so each controller needs its own schedule.
+ */
+public class GainSchedule {
+
+    /** Column of the proportional gain. */
+    private static final int P = 0;
+    /** Column of the integral gain. */
+    private static final int I = 1;
+    /** Column of the derivative gain. */
+    private static final int D = 2;
+    /** Column of the setpoint feedforward. */
+    private static final int FF = 3;
+    /** Column of the static feedforward. */
+    private static final int KS = 4;
+    /** Column of the velocity feedforward. */
+    private static final int KV = 5;
+    /** Column of the acceleration feedforward. */
+    private static final int KA = 6;
+    /** Column of the gravity feedforward. */
+    private static final int KG = 7;
+    /** The number of gains per entry. */
+    private static final int COLUMNS = 8;
+
+    /** The operating points, in increasing order. */
+    private double[] keys = new double[4];
+    /** The gains of each entry, one row per key. */
+    private double[] table = new double[4 * COLUMNS];
+    /** The number of entries. */
+    private int size;
+    /** Whether the gravity gain is scaled by the cosine of the position. */
+    private boolean armGravity;
+    /** The gains from the last update. */
+    private final double[] current = new double[COLUMNS];
+
+    /**
+     * Add an entry to the table.
+     *
+     * All entries must use the same kind of gravity feedforward.
+     *
+     * @param key    The operating point.
+     * @param values The gains to use at that point.
+     * @return This schedule.
+     */
+    public GainSchedule add(final double key, final PIDValues values) {
+        if (size > 0 && values.armGravity != armGravity) {
+            throw new IllegalArgumentException("Cannot mix arm and elevator feedforward");
+        }
+        armGravity = values.armGravity;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            throw new IllegalArgumentException("Duplicate key " + key);
+        }
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            table = Arrays.copyOf(table, size * 2 * COLUMNS);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(table, index * COLUMNS, table, (index + 1) * COLUMNS, (size - index) * COLUMNS);
+        keys[index] = key;
+        final int row = index * COLUMNS;
+        table[row + P] = values.p;
+        table[row + I] = values.i;
+        table[row + D] = values.d;
+        table[row + FF] = values.ff;
+        table[row + KS] = values.kS;
+        table[row + KV] = values.kV;
+        table[row + KA] = values.kA;
+        table[row + KG] = values.kG;
+        size++;
+        if (size == 1) {
+            update(key);
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Look up the gains for an operating point.
+     *
+     * @param key The operating point.
+     */
+    public void update(final double key) {
+        if (size == 0) {
+            throw new IllegalStateException("Gain schedule is empty");
+        }
+        final int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            System.arraycopy(table, index * COLUMNS, current, 0, COLUMNS);
+            return;
+        }
+        final int upper = -index - 1;
+        if (upper == 0) {
+            System.arraycopy(table, 0, current, 0, COLUMNS);
+        } else if (upper == size) {
+            System.arraycopy(table, (size - 1) * COLUMNS, current, 0, COLUMNS);
+        } else {
+            final int lower = upper - 1;
+            final double fraction = (key - keys[lower]) / (keys[upper] - keys[lower]);
+            final int lowRow = lower * COLUMNS;
+            final int highRow = upper * COLUMNS;
+            for (int col = 0; col < COLUMNS; col++) {
+                current[col] = table[lowRow + col] + fraction * (table[highRow + col] - table[lowRow + col]);
+            }
+        }
+    }
+
+    /**
+     * Get the proportional gain from the last update.
+     *
+     * @return The proportional gain.
+     */
+    public double getP() {
+        return current[P];
+    }
+
+    /**
+     * Get the integral gain from the last update.
+     *
+     * @return The integral gain.
+     */
+    public double getI() {
+        return current[I];
+    }
+
+    /**
+     * Get the derivative gain from the last update.
+     *
+     * @return The derivative gain.
+     */
+    public double getD() {
+        return current[D];
+    }
+
+    /**
+     * Calculate the feedforward output using the gains from the last update.
+     *
+     * @param setpoint     The PID setpoint, which the ff gain is multiplied by.
+     * @param position     The position, used for arm gravity.
+     * @param velocity     The velocity to move at.
+     * @param acceleration The acceleration to move at.
+     * @return The feedforward output.
+     * @see PIDValues#calculateFeedforward(double, double, double, double)
+     */
+    public double calculateFeedforward(final double setpoint, final double position, final double velocity,
+            final double acceleration) {
+        final double gravity = armGravity ? current[KG] * Math.cos(position) : current[KG];
+        return current[FF] * setpoint + current[KS] * Math.signum(velocity) + current[KV] * velocity
+                + current[KA] * acceleration + gravity;
+    }
+}
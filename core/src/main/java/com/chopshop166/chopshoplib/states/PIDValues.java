@@ -14,6 +14,22 @@ public class PIDValues {
     public final double d;
     /** Feed-forward coefficient. */
     public final double ff;
+    /** Maximum setpoint velocity for motion profiling, or 0 for no profile. */
+    public final double maxVelocity;
+    /** Maximum setpoint acceleration for motion profiling, or 0 for no profile. */
+    public final double maxAcceleration;
+    /** Maximum setpoint jerk for motion profiling, or 0 for a trapezoidal profile. */
+    public final double maxJerk;
+    /** Static feedforward, applied in the direction of motion. */
+    public final double kS;
+    /** Velocity feedforward. */
+    public final double kV;
+    /** Acceleration feedforward. */
+    public final double kA;
+    /** Gravity feedforward. */
+    public final double kG;
+    /** Whether kG is scaled by the cosine of the position, in radians, as for an arm. */
+    public final boolean armGravity;
 
     /**
      * Constructor.
@@ -35,10 +51,140 @@ public class PIDValues {
      * @param ff Feed-forward coefficient.
      */
     public PIDValues(final double p, final double i, final double d, final double ff) {
+        this(p, i, d, ff, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param p               Proportional coefficient.
+     * @param i               Integral coefficient.
+     * @param d               Derivative coefficient.
+     * @param ff              Feed-forward coefficient.
+     * @param maxVelocity     Maximum setpoint velocity.
+     * @param maxAcceleration Maximum setpoint acceleration.
+     * @param maxJerk         Maximum setpoint jerk.
+     * @param kS              Static feedforward.
+     * @param kV              Velocity feedforward.
+     * @param kA              Acceleration feedforward.
+     * @param kG              Gravity feedforward.
+     * @param armGravity      Whether kG is scaled by the cosine of the position.
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private PIDValues(final double p, final double i, final double d, final double ff, final double maxVelocity,
+            final double maxAcceleration, final double maxJerk, final double kS, final double kV,
+            final double kA, final double kG, final boolean armGravity) {
         this.p = p;
         this.i = i;
         this.d = d;
         this.ff = ff;
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.kG = kG;
+        this.armGravity = armGravity;
+    }
+
+    /**
+     * Copy these values with a trapezoidal motion profile.
+     * 
+     * @param maxVelocity     Maximum setpoint velocity.
+     * @param maxAcceleration Maximum setpoint acceleration.
+     * @return The new values.
+     */
+    public PIDValues withMotionProfile(final double maxVelocity, final double maxAcceleration) {
+        return withMotionProfile(maxVelocity, maxAcceleration, 0.0);
+    }
+
+    /**
+     * Copy these values with an S-curve motion profile.
+     * 
+     * @param maxVelocity     Maximum setpoint velocity.
+     * @param maxAcceleration Maximum setpoint acceleration.
+     * @param maxJerk         Maximum setpoint jerk, or 0 for a trapezoidal profile.
+     * @return The new values.
+     */
+    public PIDValues withMotionProfile(final double maxVelocity, final double maxAcceleration,
+            final double maxJerk) {
+        return new PIDValues(p, i, d, ff, maxVelocity, maxAcceleration, maxJerk, kS, kV, kA, kG, armGravity);
+    }
+
+    /**
+     * Copy these values with a feedforward for a mechanism without gravity, such
+     * as a flywheel or drivetrain.
+     * 
+     * Software PID takes the velocity and acceleration from the motion profile,
+     * see {@link #calculateFeedforward}.
+     * 
+     * @param kS Static feedforward, applied in the direction of motion.
+     * @param kV Velocity feedforward.
+     * @param kA Acceleration feedforward.
+     * @return The new values.
+     */
+    public PIDValues withFeedforward(final double kS, final double kV, final double kA) {
+        return new PIDValues(p, i, d, ff, maxVelocity, maxAcceleration, maxJerk, kS, kV, kA, 0.0, false);
+    }
+
+    /**
+     * Copy these values with a feedforward for an elevator, where gravity is
+     * constant.
+     * 
+     * @param kS Static feedforward, applied in the direction of motion.
+     * @param kG Gravity feedforward.
+     * @param kV Velocity feedforward.
+     * @param kA Acceleration feedforward.
+     * @return The new values.
+     */
+    public PIDValues withElevatorFeedforward(final double kS, final double kG, final double kV, final double kA) {
+        return new PIDValues(p, i, d, ff, maxVelocity, maxAcceleration, maxJerk, kS, kV, kA, kG, false);
+    }
+
+    /**
+     * Copy these values with a feedforward for an arm, where gravity depends on
+     * the angle.
+     * 
+     * The position must be in radians, with 0 being horizontal.
+     * 
+     * @param kS Static feedforward, applied in the direction of motion.
+     * @param kG Gravity feedforward when horizontal.
+     * @param kV Velocity feedforward.
+     * @param kA Acceleration feedforward.
+     * @return The new values.
+     */
+    public PIDValues withArmFeedforward(final double kS, final double kG, final double kV, final double kA) {
+        return new PIDValues(p, i, d, ff, maxVelocity, maxAcceleration, maxJerk, kS, kV, kA, kG, true);
+    }
+
+    /**
+     * Calculate the feedforward output.
+     * 
+     * Software PID passes the velocity and acceleration of the motion profile. A
+     * position loop without a profile jumps straight to its goal, so both are 0
+     * and kS, kV and kA have no effect. A velocity loop uses its setpoint as the
+     * velocity, so kS and kV work without a profile, but kA needs one.
+     * 
+     * @param setpoint     The PID setpoint, which {@link #ff} is multiplied by.
+     * @param position     The position, used for arm gravity.
+     * @param velocity     The velocity to move at.
+     * @param acceleration The acceleration to move at.
+     * @return The feedforward output.
+     */
+    public double calculateFeedforward(final double setpoint, final double position, final double velocity,
+            final double acceleration) {
+        final double gravity = armGravity ? kG * Math.cos(position) : kG;
+        return ff * setpoint + kS * Math.signum(velocity) + kV * velocity + kA * acceleration + gravity;
+    }
+
+    /**
+     * Check if these values use a motion profile.
+     * 
+     * @return True if the velocity and acceleration are limited.
+     */
+    public boolean isProfiled() {
+        return maxVelocity > 0 && maxAcceleration > 0;
     }
 
 }
@@ -0,0 +1,58 @@
+package com.chopshop166.chopshoplib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that DoubleSampleBuffer keeps correct running statistics. */
+final class DoubleSampleBufferTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** Statistics match a partially filled buffer. */
+    @Test
+    /* package */ void testPartial() {
+        final DoubleSampleBuffer buffer = new DoubleSampleBuffer(5);
+        assertTrue(buffer.isEmpty(), "New buffer is empty");
+        buffer.add(1.0);
+        buffer.add(2.0);
+        buffer.add(6.0);
+        assertEquals(3, buffer.size(), "Size counts the samples");
+        assertEquals(9.0, buffer.sum(), EPSILON, "Sum of samples");
+        assertEquals(3.0, buffer.mean(), EPSILON, "Mean of samples");
+        assertEquals(14.0 / 3.0, buffer.populationVariance(), EPSILON, "Variance of samples");
+        assertEquals(1.0, buffer.min(), EPSILON, "Minimum sample");
+        assertEquals(6.0, buffer.max(), EPSILON, "Maximum sample");
+    }
+
+    /** Old samples fall out of the statistics once the buffer wraps. */
+    @Test
+    /* package */ void testWrap() {
+        final DoubleSampleBuffer buffer = new DoubleSampleBuffer(3);
+        for (final double sample : new double[] { 9.0, -4.0, 2.0, 3.0, 4.0 }) {
+            buffer.add(sample);
+        }
+        assertEquals(3, buffer.size(), "Size is capped at capacity");
+        assertEquals(2.0, buffer.get(0), EPSILON, "Oldest remaining sample");
+        assertEquals(4.0, buffer.getLatest(), EPSILON, "Newest sample");
+        assertEquals(3.0, buffer.mean(), EPSILON, "Mean of remaining samples");
+        assertEquals(2.0 / 3.0, buffer.populationVariance(), EPSILON, "Variance of remaining samples");
+        assertEquals(2.0, buffer.min(), EPSILON, "Minimum of remaining samples");
+        assertEquals(4.0, buffer.max(), EPSILON, "Maximum of remaining samples");
+    }
+
+    /** Clearing the buffer resets all statistics. */
+    @Test
+    /* package */ void testClear() {
+        final DoubleSampleBuffer buffer = new DoubleSampleBuffer(2);
+        buffer.add(100.0);
+        buffer.add(200.0);
+        buffer.clear();
+        buffer.add(5.0);
+        assertEquals(5.0, buffer.mean(), EPSILON, "Mean after clear");
+        assertEquals(0.0, buffer.populationStandardDeviation(), EPSILON, "Deviation after clear");
+        assertEquals(5.0, buffer.max(), EPSILON, "Maximum after clear");
+    }
+}
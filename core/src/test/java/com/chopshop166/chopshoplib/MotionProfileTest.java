@@ -0,0 +1,52 @@
+package com.chopshop166.chopshoplib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that MotionProfile reaches its goal within its constraints. */
+final class MotionProfileTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+    /** The time step. */
+    private static final double DT = 0.02;
+
+    /** A trapezoidal move takes the expected time without overshooting. */
+    @Test
+    /* package */ void testTrapezoid() {
+        final MotionProfile profile = new MotionProfile(2.0, 4.0);
+        profile.reset(0.0);
+        profile.setGoal(10.0);
+        int steps = 0;
+        while (!profile.isFinished()) {
+            profile.calculate(DT);
+            assertTrue(profile.getPosition() <= 10.0 + EPSILON, "No overshoot");
+            assertTrue(Math.abs(profile.getVelocity()) <= 2.0 + EPSILON, "Velocity is limited");
+            steps++;
+        }
+        assertEquals(5.5, steps * DT, 2 * DT, "Accelerate, cruise and decelerate");
+    }
+
+    /** An S-curve move limits the change in acceleration. */
+    @Test
+    /* package */ void testSCurve() {
+        final MotionProfile profile = new MotionProfile(2.0, 4.0, 20.0);
+        profile.reset(0.0);
+        profile.setGoal(-3.0);
+        double lastAccel = 0.0;
+        int steps = 0;
+        while (!profile.isFinished() && steps < 1000) {
+            profile.calculate(DT);
+            if (!profile.isFinished()) {
+                assertTrue(Math.abs(profile.getAcceleration() - lastAccel) <= 20.0 * DT + EPSILON,
+                        "Jerk is limited");
+            }
+            assertTrue(profile.getPosition() >= -3.0 - EPSILON, "No overshoot");
+            lastAccel = profile.getAcceleration();
+            steps++;
+        }
+        assertEquals(-3.0, profile.getPosition(), EPSILON, "Goal is reached");
+    }
+}
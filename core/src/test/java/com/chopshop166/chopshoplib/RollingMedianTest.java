@@ -0,0 +1,70 @@
+package com.chopshop166.chopshoplib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that RollingMedian and the median filter behave properly. */
+final class RollingMedianTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** The median and deviation follow the window as it wraps. */
+    @Test
+    /* package */ void testMedian() {
+        final RollingMedian median = new RollingMedian(4);
+        for (final double sample : new double[] { 50.0, 1.0, 3.0, 2.0, 9.0 }) {
+            median.add(sample);
+        }
+        assertEquals(4, median.size(), "Size is capped at capacity");
+        assertEquals(1.0, median.select(0), EPSILON, "Smallest sample");
+        assertEquals(2.5, median.median(), EPSILON, "Median of an even window");
+        assertEquals(1.0, median.medianAbsoluteDeviation(), EPSILON, "Median absolute deviation");
+    }
+
+    /** The median filter rejects a lone outlier. */
+    @Test
+    /* package */ void testOutlier() {
+        final SampleFilter filter = SampleFilter.median(9, 3.0);
+        for (final double sample : new double[] { 100, 102, 98, 101, 99 }) {
+            assertTrue(filter.add(sample), "Normal samples are accepted");
+        }
+        assertFalse(filter.add(900), "Outlier is rejected");
+        assertEquals(100.0, filter.getValue(), EPSILON, "Outlier does not change the value");
+    }
+
+    /** The median filter still rejects outliers when every sample is the same. */
+    @Test
+    /* package */ void testOutlierWithoutDeviation() {
+        final SampleFilter filter = SampleFilter.median(9, 3.0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(filter.add(100), "Identical samples are accepted");
+        }
+        assertTrue(filter.add(102), "Samples within the minimum deviation are accepted");
+        assertFalse(filter.add(900), "Outlier is rejected");
+        assertEquals(100.0, filter.getValue(), EPSILON, "Outlier does not change the value");
+    }
+
+    /** The median filter follows a real step change once the run of rejects is long enough. */
+    @Test
+    /* package */ void testStepChange() {
+        final int numSamples = 25;
+        final SampleFilter filter = SampleFilter.median(numSamples, 3.0);
+        for (int i = 0; i < numSamples; i++) {
+            filter.add(100 + (i % 3) - 1);
+        }
+        for (int i = 0; i < numSamples / 2; i++) {
+            assertFalse(filter.add(200 + (i % 3) - 1), "Start of the step looks like outliers");
+            assertEquals(100.0, filter.getValue(), 1.0, "Value holds during the run");
+        }
+        assertTrue(filter.add(200), "Step is accepted once the run is long enough");
+        assertEquals(200.0, filter.getValue(), 1.0, "Window restarts at the new value");
+        for (int i = 0; i < numSamples; i++) {
+            assertTrue(filter.add(200 + (i % 3) - 1), "Samples after the step are accepted");
+        }
+        assertFalse(filter.add(900), "Outliers are rejected again after the step");
+    }
+}
@@ -0,0 +1,28 @@
+package com.chopshop166.chopshoplib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that TimestampedSampleBuffer looks up values by time. */
+final class TimestampedSampleBufferTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** Values between samples are interpolated, and the ends are held. */
+    @Test
+    /* package */ void testInterpolate() {
+        final TimestampedSampleBuffer buffer = new TimestampedSampleBuffer(3);
+        assertEquals(Double.NaN, buffer.getAt(1.0), EPSILON, "Empty buffer has no value");
+        buffer.add(1.0, 100.0);
+        buffer.add(2.0, 200.0);
+        buffer.add(3.0, 400.0);
+        buffer.add(4.0, 0.0);
+        assertEquals(2.0, buffer.getOldestTimestamp(), EPSILON, "Oldest sample fell out");
+        assertEquals(300.0, buffer.getAt(2.5), EPSILON, "Interpolated between samples");
+        assertEquals(400.0, buffer.getAt(3.0), EPSILON, "Exact sample time");
+        assertEquals(200.0, buffer.getAt(0.5), EPSILON, "Before the oldest sample");
+        assertEquals(0.0, buffer.getAt(9.0), EPSILON, "After the newest sample");
+    }
+}
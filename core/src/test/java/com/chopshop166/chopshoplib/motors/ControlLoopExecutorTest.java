@@ -0,0 +1,118 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that ControlLoopExecutor runs each loop at its rate. */
+final class ControlLoopExecutorTest {
+
+    /** Tolerance for rates, which are rounded to whole nanoseconds. */
+    private static final double EPSILON = 1e-3;
+    /** Nanoseconds per millisecond. */
+    private static final long MS = 1_000_000L;
+
+    /** The fake clock, in nanoseconds. */
+    private long now;
+    /** The failures reported by the executors under test. */
+    private final List<String> reports = new ArrayList<>();
+
+    /**
+     * Create an executor on the fake clock that records its error reports.
+     *
+     * @return The executor.
+     */
+    private ControlLoopExecutor makeExecutor() {
+        final ControlLoopExecutor executor = new ControlLoopExecutor("Test", () -> now);
+        executor.setErrorReporter((message, error) -> reports.add(message));
+        return executor;
+    }
+
+    /** Rates that don't divide each other still run exactly. */
+    @Test
+    /* package */ void testCommonRate() {
+        final ControlLoopExecutor executor = new ControlLoopExecutor("Test");
+        final AtomicInteger fast = new AtomicInteger();
+        final AtomicInteger slow = new AtomicInteger();
+        final ControlLoopExecutor.Loop fastLoop = executor.register("Fast", 1000.0, fast::incrementAndGet);
+        final ControlLoopExecutor.Loop slowLoop = executor.register("Slow", 300.0, slow::incrementAndGet);
+        assertFalse(executor.isRunning(), "Registering does not start the executor");
+        assertEquals(1.0 / 3000, executor.getTickPeriod(), 1e-12, "Ticks at the common rate");
+        assertEquals(1000.0, fastLoop.getActualRate(), EPSILON, "Fast loop rate");
+        assertEquals(300.0, slowLoop.getActualRate(), EPSILON, "Slow loop rate");
+
+        for (int i = 0; i < 3000; i++) {
+            executor.tick();
+        }
+        assertEquals(1000, fast.get(), "Fast loop runs once per millisecond");
+        assertEquals(300, slow.get(), "Slow loop is not rounded to 333 Hz");
+    }
+
+    /** Rates with no small common multiple run at the nearest rate they can. */
+    @Test
+    /* package */ void testFallbackRate() {
+        final ControlLoopExecutor executor = new ControlLoopExecutor("Test");
+        executor.register("Fast", 1000.0, () -> {
+        });
+        final ControlLoopExecutor.Loop slow = executor.register("Slow", 333.5, () -> {
+        });
+        assertEquals(0.001, executor.getTickPeriod(), 1e-12, "Ticks at the fastest rate");
+        assertEquals(1000.0 / 3, slow.getActualRate(), EPSILON, "Actual rate is reported");
+    }
+
+    /** A loop that throws doesn't stop the others. */
+    @Test
+    /* package */ void testErrorIsolation() {
+        final ControlLoopExecutor executor = makeExecutor();
+        final IllegalStateException error = new IllegalStateException("Broken loop");
+        final ControlLoopExecutor.Loop broken = executor.register("Broken", 50.0, () -> {
+            throw error;
+        });
+        final AtomicInteger count = new AtomicInteger();
+        final ControlLoopExecutor.Loop working = executor.register("Working", 50.0, count::incrementAndGet);
+        executor.tick();
+        executor.tick();
+        assertEquals(2, count.get(), "Later loops still run");
+        assertEquals(2, broken.getErrorCount(), "Errors are counted");
+        assertSame(error, broken.getLastError(), "Last error is kept");
+        assertEquals(0, working.getErrorCount(), "Errors are per loop");
+
+        executor.unregister(working);
+        executor.tick();
+        assertEquals(2, count.get(), "Unregistered loops don't run");
+    }
+
+    /** Failures are reported at most once per period, and run the failure handler every time. */
+    @Test
+    /* package */ void testErrorReporting() {
+        final ControlLoopExecutor executor = makeExecutor();
+        final ControlLoopExecutor.Loop broken = executor.register("Broken", 50.0, () -> {
+            throw new IllegalStateException("Broken loop");
+        });
+        final AtomicInteger handled = new AtomicInteger();
+        broken.setFailureHandler(e -> {
+            handled.incrementAndGet();
+            throw new IllegalArgumentException("Broken handler");
+        });
+        for (int i = 0; i < 3; i++) {
+            executor.tick();
+            now += 20 * MS;
+        }
+        assertEquals(3, handled.get(), "Handler runs on every failure");
+        assertEquals(1, reports.size(), "Repeated failures are reported once per period");
+        assertTrue(reports.get(0).contains("Broken"), "Report names the loop");
+        assertEquals(1, broken.getLastError().getSuppressed().length, "Handler errors are kept with the failure");
+
+        now += 1000 * MS;
+        executor.tick();
+        assertEquals(2, reports.size(), "Failures are reported again after the period");
+        assertTrue(reports.get(1).contains("3 time(s)"), "Report counts the failures since the last one");
+    }
+}
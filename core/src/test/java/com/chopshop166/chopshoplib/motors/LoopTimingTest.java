@@ -0,0 +1,32 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that LoopTiming records dt, jitter and overruns properly. */
+final class LoopTimingTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** Jitter and overruns are measured against the nominal period. */
+    @Test
+    /* package */ void testJitter() {
+        final LoopTiming timing = new LoopTiming(0.005);
+        final long[] starts = { 0, 5_000_000, 10_100_000, 14_950_000, 20_000_000 };
+        for (final long start : starts) {
+            timing.begin(start);
+            timing.end(start + 1_000_000);
+        }
+        timing.begin(31_000_000);
+        timing.end(37_000_000);
+
+        assertEquals(0.011, timing.getLastDt(), EPSILON, "Last dt is measured");
+        assertEquals(5, timing.getSampleCount(), "The first run is not a sample");
+        assertEquals(-0.00015, timing.getMinJitter(), EPSILON, "Early runs have negative jitter");
+        assertEquals(0.006, timing.getMaxJitter(), EPSILON, "Largest jitter");
+        assertEquals(0.00601, timing.getP99Jitter(), EPSILON, "P99 is the bucket's upper edge");
+        assertEquals(1, timing.getOverrunCount(), "Only the long run overran");
+    }
+}
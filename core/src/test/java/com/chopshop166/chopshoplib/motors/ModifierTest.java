@@ -0,0 +1,106 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that the stateful modifiers limit and smooth their input. */
+final class ModifierTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+    /** Nanoseconds per millisecond. */
+    private static final long MS = 1_000_000L;
+
+    /** The fake clock, in nanoseconds. */
+    private long now;
+
+    /** Slew limiting moves toward the input by at most the max change. */
+    @Test
+    /* package */ void testSlewLimit() {
+        final Modifier slew = Modifier.slewLimit(0.25);
+        assertEquals(0.25, slew.applyAsDouble(1.0), EPSILON, "Rise is limited");
+        assertEquals(0.5, slew.applyAsDouble(1.0), EPSILON, "Rise continues");
+        assertEquals(0.6, slew.applyAsDouble(0.6), EPSILON, "Small change is passed through");
+        assertEquals(0.35, slew.applyAsDouble(-1.0), EPSILON, "Fall is limited");
+    }
+
+    /** Slew limits must be positive. */
+    @Test
+    /* package */ void testSlewLimitValidation() {
+        assertThrows(IllegalArgumentException.class, () -> Modifier.slewLimit(-0.1), "Negative limit is refused");
+        assertThrows(IllegalArgumentException.class, () -> Modifier.slewLimit(0), "Zero limit is refused");
+    }
+
+    /** Rate limiting scales with the time between calls. */
+    @Test
+    /* package */ void testRateLimit() {
+        final Modifier limit = Modifier.rateLimit(2.0, () -> now);
+        assertEquals(0.0, limit.applyAsDouble(1.0), EPSILON, "First call only starts the clock");
+        now += 20 * MS;
+        assertEquals(0.04, limit.applyAsDouble(1.0), EPSILON, "Change is limited by the rate");
+        now += 40 * MS;
+        assertEquals(0.12, limit.applyAsDouble(1.0), EPSILON, "A longer gap allows a larger change");
+        now += 10_000 * MS;
+        assertEquals(0.12 + 2.0 * Modifier.MAX_TIME_STEP, limit.applyAsDouble(1.0), EPSILON,
+                "A long gap is limited to the max time step");
+        now -= 50 * MS;
+        assertEquals(0.32, limit.applyAsDouble(-1.0), EPSILON, "A clock going backwards allows no change");
+    }
+
+    /** Jerk limiting bounds the rate and its change, and doesn't overshoot. */
+    @Test
+    /* package */ void testJerkLimit() {
+        final Modifier limit = Modifier.jerkLimit(1.0, 4.0, () -> now);
+        limit.applyAsDouble(0.5);
+        double last = 0;
+        double lastRate = 0;
+        for (int i = 0; i < 100; i++) {
+            now += 20 * MS;
+            final double out = limit.applyAsDouble(0.5);
+            final double rate = (out - last) / 0.02;
+            assertTrue(rate <= 1.0 + EPSILON, "Rate is limited");
+            assertTrue(out <= 0.5 + EPSILON, "Output doesn't overshoot");
+            if (out < 0.5) {
+                assertTrue(Math.abs(rate - lastRate) <= 4.0 * 0.02 + EPSILON, "Change in rate is limited");
+            }
+            last = out;
+            lastRate = rate;
+        }
+        assertEquals(0.5, last, EPSILON, "Output reaches the target");
+
+        now += 10_000 * MS;
+        final double out = limit.applyAsDouble(-0.5);
+        assertTrue(0.5 - out <= 4.0 * Modifier.MAX_TIME_STEP * Modifier.MAX_TIME_STEP + EPSILON,
+                "A long gap is limited to the max time step");
+    }
+
+    /** Low-pass filtering follows the time constant. */
+    @Test
+    /* package */ void testLowPass() {
+        final Modifier filter = Modifier.lowPass(0.1, () -> now);
+        assertEquals(0.0, filter.applyAsDouble(0.0), EPSILON, "Output starts at the first input");
+        now += 100 * MS;
+        assertEquals(1 - Math.exp(-1), filter.applyAsDouble(1.0), EPSILON, "One time constant moves 63%");
+        now -= 50 * MS;
+        assertEquals(1 - Math.exp(-1), filter.applyAsDouble(1.0), EPSILON,
+                "A clock going backwards doesn't move the output");
+        now += 10_000 * MS;
+        assertEquals(1.0, filter.applyAsDouble(1.0), 1e-6, "A long gap settles on the input");
+    }
+
+    /** Time-aware limits must be positive. */
+    @Test
+    /* package */ void testTimeLimitValidation() {
+        assertThrows(IllegalArgumentException.class, () -> Modifier.rateLimit(0, () -> now),
+                "Zero rate is refused");
+        assertThrows(IllegalArgumentException.class, () -> Modifier.jerkLimit(-1, 1, () -> now),
+                "Negative rate is refused");
+        assertThrows(IllegalArgumentException.class, () -> Modifier.jerkLimit(1, 0, () -> now),
+                "Zero acceleration is refused");
+        assertThrows(IllegalArgumentException.class, () -> Modifier.lowPass(0, () -> now),
+                "Zero time constant is refused");
+    }
+}
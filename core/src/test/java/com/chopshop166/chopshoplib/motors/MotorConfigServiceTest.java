@@ -0,0 +1,105 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that MotorConfigService diffs, retries and orders settings. */
+final class MotorConfigServiceTest {
+
+    /** How long to wait for a batch, in seconds. */
+    private static final long TIMEOUT = 5;
+
+    /** The service under test, whose thread is a daemon. */
+    private final MotorConfigService service = new MotorConfigService("Test");
+    /** The device being configured. */
+    private final Object device = new Object();
+
+    /**
+     * Wait for a batch to be applied.
+     *
+     * @param future The batch's future.
+     * @throws ExecutionException   If the batch failed.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws TimeoutException     If the batch took too long.
+     */
+    private static void await(final Future<Void> future)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        future.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /** Settings the device already has are skipped. */
+    @Test
+    /* package */ void testDiffing() throws Exception {
+        final AtomicInteger writes = new AtomicInteger();
+        final MotorConfigService.Writer writer = ms -> writes.incrementAndGet() > 0;
+        await(service.configure(device).set("kP", 1.0, writer).submit());
+        await(service.configure(device).set("kP", 1.0, writer).submit());
+        assertEquals(1, writes.get(), "Unchanged setting is skipped");
+        await(service.configure(device).set("kP", 2.0, writer).submit());
+        assertEquals(2, writes.get(), "Changed setting is written");
+    }
+
+    /** Failed settings are retried, and written again next time if they never succeed. */
+    @Test
+    /* package */ void testRetries() throws Exception {
+        service.setAttempts(3);
+        final AtomicInteger tries = new AtomicInteger();
+        await(service.configure(device).set("kP", 1.0, ms -> tries.incrementAndGet() >= 3).submit());
+        assertEquals(3, tries.get(), "Retried until it succeeded");
+
+        final AtomicInteger failures = new AtomicInteger();
+        final Future<Void> failed = service.configure(device).set("kI", 1.0, ms -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("CAN timeout");
+        }).submit();
+        assertThrows(ExecutionException.class, () -> await(failed), "Failure is reported");
+        assertEquals(3, failures.get(), "Exceptions count as failures");
+
+        final AtomicInteger writes = new AtomicInteger();
+        await(service.configure(device).set("kI", 1.0, ms -> writes.incrementAndGet() > 0).submit());
+        assertEquals(1, writes.get(), "Failed setting is written again");
+    }
+
+    /** Assumed values are only recorded if the full configuration was written. */
+    @Test
+    /* package */ void testFailedReplaceAll() throws Exception {
+        service.setAttempts(1);
+        final AtomicInteger writes = new AtomicInteger();
+        final MotorConfigService.Writer writer = ms -> writes.incrementAndGet() > 0;
+        await(service.configure(device).set("kD", 1.0, writer).submit());
+
+        final Future<Void> failed = service.configure(device).replaceAll("all", "config", ms -> false)
+                .assume("kP", 1.0).submit();
+        assertThrows(ExecutionException.class, () -> await(failed), "Failure is reported");
+        await(service.configure(device).set("kP", 1.0, writer).set("kD", 1.0, writer).submit());
+        assertEquals(3, writes.get(), "Nothing is assumed after a failed full configuration");
+
+        await(service.configure(device).replaceAll("all", "config", ms -> true).assume("kP", 1.0).submit());
+        await(service.configure(device).set("kP", 1.0, writer).set("kD", 1.0, writer).submit());
+        assertEquals(4, writes.get(), "Assumed values are skipped, replaced ones are written");
+    }
+
+    /** The device future completes once every batch so far is applied. */
+    @Test
+    /* package */ void testWhenConfigured() throws Exception {
+        assertTrue(service.whenConfigured(device).isDone(), "Nothing submitted is already done");
+        final AtomicInteger order = new AtomicInteger();
+        final AtomicInteger secondRan = new AtomicInteger();
+        service.configure(device).set("a", 1, ms -> order.incrementAndGet() == 1).submit();
+        service.configure(device).set("b", 1, ms -> {
+            secondRan.set(order.incrementAndGet());
+            return true;
+        }).submit();
+        await(service.whenConfigured(device));
+        assertEquals(2, secondRan.get(), "Batches are applied in order");
+    }
+}
@@ -0,0 +1,74 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.chopshop166.chopshoplib.sensors.MockEncoder;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/** Test that MotorSim moves encoders like a DC motor. */
+final class MotorSimTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-6;
+
+    /** A motor at full output settles at its free speed divided by the gearing. */
+    @Test
+    /* package */ void testFreeSpeed() {
+        final MotorSim sim = new MotorSim();
+        final MockMotorController motor = new MockMotorController();
+        final MockEncoder encoder = new MockEncoder();
+        final DCMotor neo = DCMotor.getNEO(1);
+        final MotorSim.Plant plant = sim.add(motor, encoder, neo, 10.0, 0.01);
+        motor.set(1.0);
+        sim.step(0.02, 500);
+
+        final double freeSpeed = 12.0 * neo.KvRadPerSecPerVolt / 10.0;
+        assertEquals(freeSpeed, plant.getVelocity(), EPSILON, "Free speed");
+        assertEquals(freeSpeed / (2 * Math.PI), encoder.getRate(), EPSILON, "Encoder rate is in revolutions");
+        assertEquals(10.0, sim.getTime(), EPSILON, "Clock advances");
+    }
+
+    /** The plant is solved exactly, so the step size doesn't matter. */
+    @Test
+    /* package */ void testStepSize() {
+        final MotorSim coarse = new MotorSim();
+        final MotorSim fine = new MotorSim();
+        final MockMotorController motor = new MockMotorController();
+        final MockEncoder coarseEncoder = new MockEncoder();
+        final MockEncoder fineEncoder = new MockEncoder();
+        coarse.add(motor, coarseEncoder, DCMotor.getNEO(1), 5.0, 0.05);
+        fine.add(motor, fineEncoder, DCMotor.getNEO(1), 5.0, 0.05);
+        motor.set(0.5);
+        coarse.step(0.1, 3);
+        fine.step(0.001, 300);
+
+        assertEquals(fineEncoder.getDistance(), coarseEncoder.getDistance(), EPSILON, "Same distance");
+        assertEquals(fineEncoder.getRate(), coarseEncoder.getRate(), EPSILON, "Same rate");
+    }
+
+    /** Software PID ticked against the simulation clock settles on its setpoint. */
+    @Test
+    /* package */ void testClosedLoop() {
+        final MotorSim sim = new MotorSim();
+        final ControlLoopExecutor executor = new ControlLoopExecutor("Test", sim::getNanoTime);
+        final MockEncoder encoder = new MockEncoder();
+        final PIDController pid = new PIDController(2.0, 0.5, 0.05);
+        try (SwPIDMotorController controller = new SwPIDMotorController(new MockMotorController(), encoder, pid,
+                encoder::getDistance, executor)) {
+            sim.add(controller, DCMotor.getNEO(1), 10.0, 0.01);
+            controller.setSetpoint(1.0);
+            for (int i = 0; i < 250; i++) {
+                executor.tick();
+                sim.step(pid.getPeriod());
+            }
+            assertEquals(pid.getPeriod(), controller.getControlLoop().getTiming().getLastDt(), EPSILON,
+                    "Loop sees simulated time");
+            assertEquals(1.0, encoder.getDistance(), 0.01, "Settles on the setpoint");
+            assertEquals(0.0, encoder.getRate(), 0.01, "Comes to rest");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.chopshop166.chopshoplib.states.PIDValues;
+
+/** Test RelayAutoTuner against a simulated plant. */
+final class RelayAutoTunerTest {
+
+    /** The simulation step, in seconds. */
+    private static final double DT = 0.001;
+
+    /**
+     * A plant of three equal first order lags, 1/(s+1)^3, has an ultimate gain of
+     * 8 and an ultimate period of 2 pi / sqrt(3).
+     */
+    @Test
+    /* package */ void testThirdOrderPlant() {
+        final RelayAutoTuner tuner = new RelayAutoTuner(1.0, 4);
+        final double[] state = new double[3];
+        tuner.start(0.0);
+        double time = 0;
+        while (!tuner.isFinished() && time < 60) {
+            final double output = tuner.update(state[2], time);
+            state[0] += (output - state[0]) * DT;
+            state[1] += (state[0] - state[1]) * DT;
+            state[2] += (state[1] - state[2]) * DT;
+            time += DT;
+        }
+
+        assertTrue(tuner.isFinished(), "Tuning finishes");
+        assertEquals(2 * Math.PI / Math.sqrt(3), tuner.getUltimatePeriod(), 0.05, "Ultimate period");
+        // The describing function underestimates the ultimate gain a little
+        assertEquals(8, tuner.getUltimateGain(), 1.0, "Ultimate gain");
+        final PIDValues values = tuner.getValues(RelayAutoTuner.Rule.ZIEGLER_NICHOLS);
+        assertEquals(0.6 * tuner.getUltimateGain(), values.p, 1e-9, "Ziegler-Nichols proportional gain");
+    }
+
+    /**
+     * Run the tuner on a 1/(s+1)^3 plant until it has seen some rising edges.
+     *
+     * @param tuner The started tuner.
+     * @param state The plant state, kept between calls.
+     * @param edges The number of rising edges of the output to stop after.
+     * @param time  The time to start at, in seconds.
+     * @return The time at the end, in seconds.
+     */
+    private static double runPlant(final RelayAutoTuner tuner, final double[] state, final int edges,
+            final double time) {
+        double now = time;
+        double last = 0;
+        int seen = 0;
+        while (!tuner.isFinished() && seen < edges && now < time + 60) {
+            final double output = tuner.update(state[2], now);
+            if (output > 0 && last < 0) {
+                seen++;
+            }
+            last = output;
+            state[0] += (output - state[0]) * DT;
+            state[1] += (state[0] - state[1]) * DT;
+            state[2] += (state[1] - state[2]) * DT;
+            now += DT;
+        }
+        return now;
+    }
+
+    /** Restarting forgets the last period, so the first period after it isn't taken as settled. */
+    @Test
+    /* package */ void testRestart() {
+        final RelayAutoTuner tuner = new RelayAutoTuner(1.0, 4);
+        final double[] state = new double[3];
+        tuner.start(0.0);
+        double time = runPlant(tuner, state, Integer.MAX_VALUE, 0);
+        assertTrue(tuner.isFinished(), "First run finishes");
+
+        // Restart while the plant is still oscillating at the same period
+        tuner.start(0.0);
+        time = runPlant(tuner, state, 2, time);
+        assertEquals(0, tuner.getCycleCount(), "The first period isn't settled");
+        runPlant(tuner, state, Integer.MAX_VALUE, time);
+        assertTrue(tuner.isFinished(), "Restarted run finishes");
+        assertEquals(2 * Math.PI / Math.sqrt(3), tuner.getUltimatePeriod(), 0.05, "Same ultimate period");
+    }
+
+    /** A mechanism that never crosses the setpoint times out. */
+    @Test
+    /* package */ void testTimeout() {
+        final RelayAutoTuner tuner = new RelayAutoTuner(1.0, 0.5, 0.0, 4);
+        tuner.setTimeout(5.0);
+        tuner.start(1.0);
+        double time = 10;
+        double output = 0;
+        while (!tuner.hasFailed() && time < 20) {
+            output = tuner.update(0.0, time);
+            time += 0.02;
+        }
+
+        assertTrue(tuner.hasFailed(), "Tuning fails");
+        assertFalse(tuner.isFinished(), "Tuning doesn't finish");
+        assertEquals(15, time, 0.05, "Timeout is counted from the first measurement");
+        assertEquals(0.5, output, 1e-9, "Failed tuner outputs the bias");
+        assertThrows(IllegalStateException.class, () -> tuner.getValues(RelayAutoTuner.Rule.ZIEGLER_NICHOLS),
+                "No gains after a failure");
+
+        tuner.start(1.0);
+        assertFalse(tuner.hasFailed(), "Restarting clears the failure");
+        tuner.abort();
+        assertTrue(tuner.hasFailed(), "Aborting fails the tuner");
+    }
+}
@@ -0,0 +1,181 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/** Test that SmartMotorController suppresses redundant writes and tracks faults. */
+final class SmartMotorControllerTest {
+
+    /** Nanoseconds per millisecond. */
+    private static final long MS = 1_000_000L;
+
+    /** Writes close to the last one are suppressed until the keep-alive. */
+    @Test
+    /* package */ void testSuppression() {
+        final SmartMotorController controller = new SmartMotorController();
+        controller.setWriteCoalescing(0.01, 0.1);
+        assertTrue(controller.shouldWrite(0.5, PIDControlType.Position, 0, 0), "First write is sent");
+        assertFalse(controller.shouldWrite(0.505, PIDControlType.Position, 0, 20 * MS), "Close write is suppressed");
+        assertTrue(controller.shouldWrite(0.6, PIDControlType.Position, 0, 40 * MS), "Changed value is sent");
+        assertTrue(controller.shouldWrite(0.6, PIDControlType.Velocity, 0, 60 * MS), "Changed mode is sent");
+        assertTrue(controller.shouldWrite(0.6, PIDControlType.Velocity, 1, 80 * MS), "Changed slot is sent");
+        assertEquals(1, controller.getSuppressedWriteCount(), "Suppressed writes are counted");
+    }
+
+    /** Unchanged writes are still sent once per keep-alive period. */
+    @Test
+    /* package */ void testKeepAlive() {
+        final SmartMotorController controller = new SmartMotorController();
+        controller.setWriteCoalescing(0.01, 0.1);
+        assertTrue(controller.shouldWrite(0.5, PIDControlType.Position, 0, 0), "First write is sent");
+        assertFalse(controller.shouldWrite(0.5, PIDControlType.Position, 0, 99 * MS), "Suppressed before keep-alive");
+        assertTrue(controller.shouldWrite(0.5, PIDControlType.Position, 0, 100 * MS), "Sent at keep-alive");
+        assertFalse(controller.shouldWrite(0.5, PIDControlType.Position, 0, 150 * MS), "Keep-alive restarts");
+
+        controller.stopMotor();
+        assertTrue(controller.shouldWrite(0.5, PIDControlType.Position, 0, 160 * MS), "Sent after stopping");
+
+        controller.setWriteCoalescing(0.01, 0);
+        assertTrue(controller.shouldWrite(0.5, PIDControlType.Position, 0, 160 * MS), "No keep-alive sends all");
+    }
+
+    /** Validators only run once per period, and validate() uses the cached result. */
+    @Test
+    /* package */ void testSamplingPeriod() {
+        final SmartMotorController controller = new SmartMotorController();
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicBoolean healthy = new AtomicBoolean(true);
+        controller.addValidator(() -> {
+            runs.incrementAndGet();
+            return healthy.get();
+        });
+        controller.setValidationPeriod(0.1);
+        try {
+            controller.sampleValidators(0);
+            controller.sampleValidators(50 * MS);
+            assertEquals(1, runs.get(), "Validators wait for the period");
+            healthy.set(false);
+            assertTrue(controller.validate(60 * MS), "validate() doesn't run the validators early");
+            assertEquals(1, runs.get(), "validate() uses the cached result within the period");
+            controller.sampleValidators(100 * MS);
+            assertEquals(2, runs.get(), "Validators run once the period is up");
+            assertTrue(controller.errored(), "Failed sample is reported");
+        } finally {
+            FaultRegistry.getInstance().unregister(controller);
+        }
+    }
+
+    /** validate() runs the validators itself when a sample is due. */
+    @Test
+    /* package */ void testValidateSamples() {
+        final SmartMotorController controller = new SmartMotorController();
+        final AtomicBoolean healthy = new AtomicBoolean(true);
+        controller.addValidator(healthy::get);
+        controller.setValidationPeriod(0.1);
+        try {
+            assertTrue(controller.validate(0), "First check runs the validators");
+            healthy.set(false);
+            assertTrue(controller.validate(50 * MS), "Cached result within the period");
+            assertFalse(controller.validate(100 * MS), "Due check runs the validators");
+
+            controller.clearFault();
+            healthy.set(true);
+            assertTrue(controller.validate(150 * MS), "Cleared fault passes within the period");
+            controller.addValidator(() -> false);
+            assertFalse(controller.validate(160 * MS), "A new validator is run on the next check");
+        } finally {
+            FaultRegistry.getInstance().unregister(controller);
+        }
+    }
+
+    /** A fault needs several failed samples in a row when debounced. */
+    @Test
+    /* package */ void testDebounce() {
+        final SmartMotorController controller = new SmartMotorController();
+        final AtomicBoolean healthy = new AtomicBoolean(false);
+        controller.addValidator(healthy::get);
+        controller.setValidationPeriod(0);
+        controller.setFaultDebounce(3);
+        try {
+            controller.sampleValidators(0);
+            controller.sampleValidators(1);
+            assertFalse(controller.isFaulted(), "Two failures are not enough");
+            healthy.set(true);
+            controller.sampleValidators(2);
+            healthy.set(false);
+            controller.sampleValidators(3);
+            controller.sampleValidators(4);
+            assertFalse(controller.isFaulted(), "A pass restarts the count");
+            controller.sampleValidators(5);
+            assertTrue(controller.isFaulted(), "Three failures in a row fault");
+            healthy.set(true);
+            controller.sampleValidators(6);
+            assertFalse(controller.isFaulted(), "Unlatched faults clear on a pass");
+        } finally {
+            FaultRegistry.getInstance().unregister(controller);
+        }
+    }
+
+    /** A latched fault stays until cleared. */
+    @Test
+    /* package */ void testLatching() {
+        final SmartMotorController controller = new SmartMotorController();
+        final AtomicBoolean healthy = new AtomicBoolean(false);
+        controller.addValidator(healthy::get);
+        controller.setValidationPeriod(0);
+        controller.setFaultLatching(true);
+        try {
+            controller.sampleValidators(0);
+            assertTrue(FaultRegistry.getInstance().hasFaults(), "Registry sees the fault");
+            healthy.set(true);
+            controller.sampleValidators(1);
+            assertTrue(controller.isFaulted(), "Latched fault stays");
+            controller.clearFault();
+            assertFalse(controller.isFaulted(), "Cleared fault is gone");
+        } finally {
+            FaultRegistry.getInstance().unregister(controller);
+        }
+        assertFalse(FaultRegistry.getInstance().getControllers().contains(controller), "Controller is unregistered");
+    }
+
+    /** Followers are inverted relative to the leader. */
+    @Test
+    /* package */ void testFollowerInversion() {
+        final List<Boolean> inversions = new ArrayList<>();
+        final SmartMotorController leader = new SmartMotorController() {
+            @Override
+            protected boolean addFollower(final MotorController follower, final boolean inverted) {
+                inversions.add(inverted);
+                return true;
+            }
+        };
+        final MockMotorController same = new MockMotorController();
+        final MockMotorController opposite = new MockMotorController();
+        leader.setInverted(true);
+        same.setInverted(true);
+        assertSame(leader, SmartMotorController.withFollowers(leader, same, opposite), "The leader is returned");
+        assertFalse(inversions.get(0), "Follower inverted like the leader follows it");
+        assertTrue(inversions.get(1), "Follower not inverted like the leader opposes it");
+    }
+
+    /** Followers that can't follow in hardware are refused. */
+    @Test
+    /* package */ void testFollowerRefused() {
+        final SmartMotorController leader = new SmartMotorController();
+        assertThrows(IllegalArgumentException.class,
+                () -> SmartMotorController.withFollowers(leader, new MockMotorController()),
+                "Follower without hardware support is refused");
+    }
+}
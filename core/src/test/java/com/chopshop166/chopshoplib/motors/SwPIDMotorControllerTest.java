@@ -0,0 +1,124 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.chopshop166.chopshoplib.sensors.MockEncoder;
+import com.chopshop166.chopshoplib.states.PIDValues;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/** Test that SwPIDMotorController tracks its goal in simulation. */
+final class SwPIDMotorControllerTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** The simulation. */
+    private final MotorSim sim = new MotorSim();
+    /** An executor ticked against the simulation clock. */
+    private final ControlLoopExecutor executor = new ControlLoopExecutor("Test", sim::getNanoTime);
+    /** The simulated encoder. */
+    private final MockEncoder encoder = new MockEncoder();
+    /** The PID controller. */
+    private final PIDController pid = new PIDController(2.0, 0.5, 0.05);
+
+    /**
+     * Create a controller driving a simulated mechanism.
+     *
+     * @return The controller.
+     */
+    private SwPIDMotorController makeController() {
+        final SwPIDMotorController controller = new SwPIDMotorController(new MockMotorController(), encoder, pid,
+                encoder::getDistance, executor);
+        sim.add(controller, DCMotor.getNEO(1), 10.0, 0.01);
+        return controller;
+    }
+
+    /**
+     * Run the control loop and simulation together.
+     *
+     * @param count The number of loops to run.
+     */
+    private void run(final int count) {
+        for (int i = 0; i < count; i++) {
+            executor.tick();
+            sim.step(pid.getPeriod());
+        }
+    }
+
+    /** With a profile, the PID setpoint moves towards the goal. */
+    @Test
+    /* package */ void testProfiledGoal() {
+        try (SwPIDMotorController controller = makeController()) {
+            controller.addDefaultConfiguration(new PIDValues(2.0, 0.5, 0.05).withMotionProfile(2.0, 4.0));
+            controller.setSetpoint(1.0);
+            run(5);
+            assertEquals(1.0, controller.getGoal(), EPSILON, "Goal is kept");
+            assertTrue(pid.getSetpoint() < 1.0, "PID setpoint follows the profile");
+            assertFalse(controller.atGoal(), "Not at the goal while moving");
+
+            run(200);
+            assertEquals(1.0, pid.getSetpoint(), EPSILON, "Profile reaches the goal");
+            assertTrue(controller.atGoal(), "At the goal once settled");
+
+            controller.setSetpoint(2.0);
+            assertFalse(controller.atGoal(), "A new goal is not reached yet");
+        }
+    }
+
+    /** Without a profile, the PID setpoint is the goal right away. */
+    @Test
+    /* package */ void testUnprofiledGoal() {
+        try (SwPIDMotorController controller = makeController()) {
+            controller.setSetpoint(1.0);
+            assertEquals(1.0, pid.getSetpoint(), EPSILON, "PID setpoint is set immediately");
+            run(250);
+            assertTrue(controller.atGoal(), "At the goal once settled");
+        }
+    }
+
+    /** Ticks that share a timestamp hold the last output. */
+    @Test
+    /* package */ void testSameTimestamp() {
+        try (SwPIDMotorController controller = makeController()) {
+            controller.setSetpoint(1.0);
+            run(3);
+            executor.tick();
+            final double output = controller.get();
+            executor.tick();
+            assertTrue(Double.isFinite(controller.get()), "Output stays finite");
+            assertEquals(output, controller.get(), EPSILON, "Last output is held");
+            run(250);
+            assertTrue(controller.atGoal(), "Control continues once the clock moves");
+        }
+    }
+
+    /** A failed calculation stops the motor. */
+    @Test
+    /* package */ void testFailureStopsMotor() {
+        executor.setErrorReporter((message, error) -> {
+        });
+        final boolean[] broken = new boolean[1];
+        try (SwPIDMotorController controller = new SwPIDMotorController(new MockMotorController(), encoder, pid,
+                () -> {
+                    if (broken[0]) {
+                        throw new IllegalStateException("Sensor unplugged");
+                    }
+                    return encoder.getDistance();
+                }, executor)) {
+            controller.setSetpoint(1.0);
+            executor.tick();
+            sim.step(pid.getPeriod());
+            assertTrue(controller.get() != 0, "Motor is driven towards the goal");
+            broken[0] = true;
+            executor.tick();
+            assertEquals(0.0, controller.get(), EPSILON, "Motor is stopped after a failure");
+            assertEquals(1, controller.getControlLoop().getErrorCount(), "Failure is recorded");
+        }
+    }
+}
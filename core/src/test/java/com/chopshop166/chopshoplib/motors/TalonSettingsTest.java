@@ -0,0 +1,62 @@
+package com.chopshop166.chopshoplib.motors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.LimitSwitchSource;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that TalonSettings finds configurations that need a full write. */
+final class TalonSettingsTest {
+
+    /** The fields that are diffed when switching configurations. */
+    private static final Set<String> DIFFED = diffed();
+
+    /**
+     * Get the fields that are diffed.
+     *
+     * @return The common settings and the gain slots.
+     */
+    private static Set<String> diffed() {
+        final Set<String> fields = new HashSet<>(TalonSettings.COMMON_FIELDS);
+        fields.addAll(Set.of("slot0", "slot1", "slot2", "slot3"));
+        return fields;
+    }
+
+    /** Differences in the diffed fields don't need a full write. */
+    @Test
+    /* package */ void testDiffedFields() {
+        final TalonFXConfiguration first = new TalonFXConfiguration();
+        final TalonFXConfiguration second = new TalonFXConfiguration();
+        assertTrue(TalonSettings.sameOutside(first, second, Set.of()), "Default configurations are the same");
+        second.slot0.kP = 1.0;
+        second.neutralDeadband = 0.1;
+        assertTrue(TalonSettings.sameOutside(first, second, DIFFED), "Gains and common settings are skipped");
+        assertFalse(TalonSettings.sameOutside(first, second, Set.of()), "Nested gains are compared");
+    }
+
+    /** Differences anywhere else need a full write. */
+    @Test
+    /* package */ void testOtherFields() {
+        final TalonFXConfiguration first = new TalonFXConfiguration();
+        final TalonFXConfiguration sensor = new TalonFXConfiguration();
+        sensor.primaryPID.selectedFeedbackSensor = FeedbackDevice.RemoteSensor0;
+        assertFalse(TalonSettings.sameOutside(first, sensor, DIFFED), "Feedback sensor is compared");
+
+        final TalonFXConfiguration limit = new TalonFXConfiguration();
+        limit.forwardLimitSwitchSource = LimitSwitchSource.Deactivated;
+        assertFalse(TalonSettings.sameOutside(first, limit, DIFFED), "Limit switch source is compared");
+
+        final TalonFXConfiguration window = new TalonFXConfiguration();
+        window.velocityMeasurementWindow = 1;
+        assertFalse(TalonSettings.sameOutside(first, window, DIFFED), "Velocity window is compared");
+
+        assertFalse(TalonSettings.sameOutside(first, null, DIFFED), "Nothing written yet needs a full write");
+    }
+}
@@ -0,0 +1,62 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that CachedEncoder only changes when its cache is refreshed. */
+final class CachedEncoderTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** The encoder being cached. */
+    private final MockEncoder raw = new MockEncoder();
+    /** A cache that is only refreshed by the test. */
+    private final EncoderCache cache = new EncoderCache();
+
+    /** Test that reads between refreshes return the last values read. */
+    @Test
+    /* package */ void testRefresh() {
+        raw.setDistance(1.0);
+        raw.setRate(2.0);
+        final CachedEncoder encoder = new CachedEncoder(raw, cache);
+        assertEquals(1.0, encoder.getDistance(), EPSILON, "Distance is read on creation");
+        assertEquals(2.0, encoder.getRate(), EPSILON, "Rate is read on creation");
+
+        raw.setDistance(3.0);
+        raw.setRate(4.0);
+        assertEquals(1.0, encoder.getDistance(), EPSILON, "Distance is held until a refresh");
+        assertEquals(2.0, encoder.getRate(), EPSILON, "Rate is held until a refresh");
+
+        cache.refresh(1000L);
+        assertEquals(3.0, encoder.getDistance(), EPSILON, "Distance is read on refresh");
+        assertEquals(4.0, encoder.getRate(), EPSILON, "Rate is read on refresh");
+        assertEquals(1000L, encoder.getTimestamp(), "Encoder timestamp is the refresh time");
+        assertEquals(1000L, cache.getTimestamp(), "Cache timestamp is the refresh time");
+    }
+
+    /** Test that resetting clears the distance without waiting for a refresh. */
+    @Test
+    /* package */ void testReset() {
+        raw.setDistance(5.0);
+        raw.setRate(1.5);
+        final CachedEncoder encoder = new CachedEncoder(raw, cache);
+        encoder.reset();
+        assertEquals(0.0, raw.getDistance(), EPSILON, "Wrapped encoder is reset");
+        assertEquals(0.0, encoder.getDistance(), EPSILON, "Cached distance is reset");
+        assertEquals(1.5, encoder.getRate(), EPSILON, "Rate is kept");
+    }
+
+    /** Test that an unregistered encoder is no longer refreshed. */
+    @Test
+    /* package */ void testUnregister() {
+        final CachedEncoder encoder = new CachedEncoder(raw, cache);
+        assertTrue(cache.getEncoders().contains(encoder), "Encoder is registered");
+        cache.unregister(encoder);
+        raw.setDistance(7.0);
+        cache.refresh(2000L);
+        assertEquals(0.0, encoder.getDistance(), EPSILON, "Unregistered encoder is not refreshed");
+    }
+}
@@ -0,0 +1,98 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that I2CBusScheduler polls devices and runs one-off transactions. */
+final class I2CBusSchedulerTest {
+
+    /** Tolerance for polling rates, which are rounded to whole nanoseconds. */
+    private static final double EPSILON = 1e-3;
+
+    /** Devices are not polled until the scheduler is started. */
+    @Test
+    /* package */ void testNotStarted() {
+        final I2CBusScheduler scheduler = new I2CBusScheduler("Test");
+        final AtomicInteger count = new AtomicInteger();
+        final I2CBusScheduler.Device device = scheduler.register("Device", 50.0, count::incrementAndGet);
+        assertFalse(scheduler.isRunning(), "Registering does not start the scheduler");
+        device.pollNow();
+        device.pollNow();
+        assertEquals(2, count.get(), "Polled by hand");
+        assertEquals(2, device.getTransactionCount(), "Transactions are counted");
+        assertEquals(0, device.getErrorCount(), "No errors");
+        assertEquals(0, device.getMissedCount(), "Polling by hand misses nothing");
+    }
+
+    /** A transaction that throws is counted as an error, and the error is kept. */
+    @Test
+    /* package */ void testErrors() {
+        final I2CBusScheduler scheduler = new I2CBusScheduler("Test");
+        final AtomicInteger count = new AtomicInteger();
+        final I2CBusScheduler.Device device = scheduler.register("Device", 50.0, () -> {
+            if (count.incrementAndGet() % 2 == 1) {
+                throw new IllegalStateException("Bus error " + count.get());
+            }
+        });
+        assertNull(device.getLastError(), "No error before polling");
+        device.pollNow();
+        assertEquals(1, device.getTransactionCount(), "Failed transactions are counted");
+        assertEquals(1, device.getErrorCount(), "Errors are counted");
+        assertEquals("Bus error 1", device.getLastError().getMessage(), "Error is kept");
+        device.pollNow();
+        device.pollNow();
+        assertEquals(2, device.getErrorCount(), "Only failures are counted");
+        assertEquals("Bus error 3", device.getLastError().getMessage(), "Latest error is kept");
+    }
+
+    /** Rates can be changed, but must be positive. */
+    @Test
+    /* package */ void testRate() {
+        final I2CBusScheduler scheduler = new I2CBusScheduler("Test");
+        final I2CBusScheduler.Device device = scheduler.register("Device", 50.0, () -> {
+        });
+        assertEquals(50.0, device.getRate(), EPSILON, "Initial rate");
+        device.setRate(60.0);
+        assertEquals(60.0, device.getRate(), EPSILON, "Changed rate");
+        assertThrows(IllegalArgumentException.class, () -> device.setRate(0), "Zero rate is rejected");
+        scheduler.unregister(device);
+        assertTrue(scheduler.getDevices().isEmpty(), "Device is removed");
+    }
+
+    /** One-off transactions run on the polling thread while it is running. */
+    @Test
+    /* package */ void testExclusive() {
+        final I2CBusScheduler scheduler = new I2CBusScheduler("Test");
+        final AtomicInteger count = new AtomicInteger();
+        scheduler.register("Device", 1000.0, count::incrementAndGet);
+        assertSame(Thread.currentThread(), scheduler.callExclusive(Thread::currentThread),
+                "Runs on the caller when stopped");
+
+        scheduler.start();
+        try {
+            final Thread thread = scheduler.getThread();
+            assertSame(thread, scheduler.callExclusive(Thread::currentThread), "Runs on the polling thread");
+            final int polled = scheduler.callExclusive(() -> {
+                final int before = count.get();
+                LockSupport.parkNanos(20_000_000L);
+                return count.get() - before;
+            });
+            assertEquals(0, polled, "No polls during the transaction");
+            assertThrows(IllegalArgumentException.class, () -> scheduler.runExclusive(() -> {
+                throw new IllegalArgumentException("Bad command");
+            }), "Exceptions reach the caller");
+        } finally {
+            scheduler.stop();
+        }
+        assertFalse(scheduler.isRunning(), "Stopped");
+    }
+}
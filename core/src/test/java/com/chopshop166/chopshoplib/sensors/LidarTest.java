@@ -0,0 +1,149 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.chopshop166.chopshoplib.SampleFilter;
+import com.chopshop166.chopshoplib.sensors.Lidar.MeasurementType;
+import com.chopshop166.chopshoplib.sensors.Lidar.Settings.OpMode;
+
+/** Test that Lidar reads a simulated tinyLiDAR correctly. */
+final class LidarTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+    /** Tolerance for polling rates, which are rounded to whole nanoseconds. */
+    private static final double RATE_EPSILON = 1e-3;
+
+    /** The simulated sensor. */
+    private final MockTinyLidar sensor = new MockTinyLidar();
+    /** A scheduler that is never started, so polls are driven by hand. */
+    private final I2CBusScheduler scheduler = new I2CBusScheduler("LidarTest");
+    /** The fake clock, in seconds. */
+    private double time;
+
+    /**
+     * Create a LiDAR on the test scheduler.
+     *
+     * @param filter The filter to use.
+     * @return The LiDAR.
+     */
+    private Lidar makeLidar(final SampleFilter filter) {
+        return new Lidar(sensor, "Test", filter, scheduler, () -> time);
+    }
+
+    /**
+     * Poll the LiDAR several times, advancing the clock by 20 ms each time.
+     *
+     * @param lidar The LiDAR to poll.
+     * @param count The number of polls.
+     */
+    private void poll(final Lidar lidar, final int count) {
+        for (int i = 0; i < count; i++) {
+            time += 0.02;
+            lidar.getPollDevice().pollNow();
+        }
+    }
+
+    /** Single step mode sends a measure command for each reading. */
+    @Test
+    /* package */ void testSingleStep() {
+        sensor.setDistance(500);
+        try (Lidar lidar = makeLidar(SampleFilter.mean(5))) {
+            poll(lidar, 5);
+            final Lidar.Reading reading = lidar.getReading();
+            assertFalse(lidar.isStreaming(), "Single step mode does not stream");
+            assertEquals(OpMode.SINGLESTEP, sensor.getMode(), "Sensor stays in single step mode");
+            assertEquals(500.0, reading.distanceMM, EPSILON, "Distance is read");
+            assertEquals(500.0 / 25.4, lidar.getDistance(MeasurementType.INCHES), EPSILON, "Distance in inches");
+            assertTrue(reading.isValid, "Reading is valid");
+            assertEquals(5, reading.sequence, "Every poll publishes a reading");
+            assertEquals(0.1, reading.timestamp, EPSILON, "Reading uses the clock");
+        }
+    }
+
+    /** Continuous mode streams readings at the sensor's rate without a command. */
+    @Test
+    /* package */ void testContinuous() {
+        sensor.setDistance(500);
+        try (Lidar lidar = makeLidar(SampleFilter.mean(1))) {
+            lidar.setMode(OpMode.CONTINOUS);
+            assertTrue(lidar.isStreaming(), "Continuous mode streams");
+            assertEquals(OpMode.CONTINOUS, sensor.getMode(), "Sensor is in continuous mode");
+            assertEquals(Lidar.CONTINUOUS_RATE, lidar.getPollDevice().getRate(), RATE_EPSILON,
+                    "Polls at the sensor's rate");
+
+            sensor.setDistance(700);
+            poll(lidar, 1);
+            assertEquals(700.0, lidar.getReading().distanceMM, EPSILON, "Streamed reading is current");
+
+            lidar.setMode(OpMode.SINGLESTEP);
+            assertFalse(lidar.isStreaming(), "Single step mode stops streaming");
+            assertEquals(I2CBusScheduler.DEFAULT_RATE, lidar.getPollDevice().getRate(), RATE_EPSILON, "Default rate");
+        }
+    }
+
+    /** A sensor that refuses continuous mode is left in single step mode. */
+    @Test
+    /* package */ void testContinuousRefused() {
+        sensor.setAcceptsContinuous(false);
+        try (Lidar lidar = makeLidar(SampleFilter.mean(1))) {
+            lidar.setMode(OpMode.CONTINOUS);
+            assertFalse(lidar.isStreaming(), "Refused mode does not stream");
+            assertEquals(OpMode.SINGLESTEP, sensor.getMode(), "Sensor is put back in single step mode");
+            assertEquals(I2CBusScheduler.DEFAULT_RATE, lidar.getPollDevice().getRate(), RATE_EPSILON, "Default rate");
+        }
+    }
+
+    /** Aborted transfers publish nothing and leave the mode alone. */
+    @Test
+    /* package */ void testAbortedTransfers() {
+        sensor.setDistance(500);
+        try (Lidar lidar = makeLidar(SampleFilter.mean(1))) {
+            poll(lidar, 2);
+            sensor.setDropoutRate(1.0);
+            sensor.setDistance(900);
+            poll(lidar, 3);
+            assertEquals(2, lidar.getReading().sequence, "Aborted polls publish nothing");
+            assertEquals(500.0, lidar.getReading().distanceMM, EPSILON, "Reading is unchanged");
+            assertEquals(5, lidar.getPollDevice().getTransactionCount(), "Aborted polls are still counted");
+
+            lidar.setMode(OpMode.CONTINOUS);
+            assertFalse(lidar.isStreaming(), "Aborted mode change does not stream");
+            assertThrows(IllegalStateException.class, lidar::querySettings, "Aborted query throws");
+        }
+    }
+
+    /** The settings response is parsed. */
+    @Test
+    /* package */ void testQuerySettings() {
+        try (Lidar lidar = makeLidar(SampleFilter.mean(1))) {
+            final Lidar.Settings settings = lidar.querySettings();
+            assertEquals(OpMode.SINGLESTEP, settings.operationMode, "Operation mode");
+            assertEquals(Lidar.Settings.PresetConfiguration.TINYLIDAR, settings.preset, "Preset");
+            assertEquals(33, settings.timingBudgetInMS, "Timing budget");
+            assertEquals("1.4.0", settings.fwVersion, "Firmware version");
+            assertTrue(settings.watchdogTimer, "Watchdog");
+        }
+    }
+
+    /** Resetting clears the filter and history before the next poll. */
+    @Test
+    /* package */ void testReset() {
+        sensor.setDistance(500);
+        try (Lidar lidar = makeLidar(SampleFilter.mean(5))) {
+            poll(lidar, 5);
+            sensor.setDistance(1000);
+            lidar.reset();
+            assertEquals(500.0, lidar.getReading().distanceMM, EPSILON, "Reset waits for the next poll");
+            poll(lidar, 1);
+            assertEquals(1000.0, lidar.getReading().distanceMM, EPSILON, "Old samples are dropped");
+            assertEquals(1000.0, lidar.getDistanceAt(0.02, MeasurementType.MILLIMETERS), EPSILON,
+                    "Old history is dropped");
+        }
+    }
+}
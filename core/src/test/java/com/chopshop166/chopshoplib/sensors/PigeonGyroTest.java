@@ -0,0 +1,88 @@
+package com.chopshop166.chopshoplib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that PigeonGyro reuses a sample for one period and no longer. */
+final class PigeonGyroTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+    /** Nanoseconds per millisecond. */
+    private static final long MS = 1_000_000L;
+
+    /** The fake clock, in nanoseconds. */
+    private long now;
+    /** The simulated heading, in degrees. */
+    private double heading;
+    /** The simulated yaw rate, in degrees per second. */
+    private double yawRate;
+    /** The number of times the device was read. */
+    private int reads;
+
+    /**
+     * Create a gyro that reads the simulated values instead of a Pigeon.
+     *
+     * @param cache The cache to register with.
+     * @return The gyro.
+     */
+    private PigeonGyro makeGyro(final GyroCache cache) {
+        return new PigeonGyro(null, cache, () -> now) {
+            @Override
+            /* package */ double readDevice(final double[] rates, final double[] ypr) {
+                reads++;
+                rates[2] = yawRate;
+                ypr[0] = heading;
+                return heading;
+            }
+        };
+    }
+
+    /** A getter reads the device again once the sample is a period old. */
+    @Test
+    /* package */ void testStaleSample() {
+        final PigeonGyro gyro = makeGyro(new GyroCache());
+        heading = 10;
+        yawRate = 5;
+        assertEquals(10, gyro.getAngle(), EPSILON, "First read samples the device");
+        assertEquals(5, gyro.getRate(), EPSILON, "Rate comes from the same sample");
+        assertEquals(1, reads, "One device read per sample");
+
+        heading = 20;
+        now += 5 * MS;
+        assertEquals(10, gyro.getAngle(), EPSILON, "Sample is reused within the period");
+        now += 5 * MS;
+        assertEquals(20, gyro.getAngle(), EPSILON, "Sample is read again after the period");
+        assertEquals(2, reads, "One device read per period");
+
+        gyro.setInverted(true);
+        assertEquals(-20, gyro.getAngle(), EPSILON, "Inverted angle");
+        assertEquals(-5, gyro.getRate(), EPSILON, "Inverted rate");
+    }
+
+    /** A cache refresh takes a new sample for the rest of the loop. */
+    @Test
+    /* package */ void testCacheRefresh() {
+        final GyroCache cache = new GyroCache();
+        final PigeonGyro gyro = makeGyro(cache);
+        heading = 30;
+        cache.refresh(now);
+        assertEquals(1, reads, "Cache reads the device");
+        assertEquals(30, gyro.getAngle(), EPSILON, "Getter uses the cached sample");
+        assertEquals(1, reads, "Getter doesn't read again within the period");
+        assertEquals(now, gyro.getSampleTime(), "Sample time is the refresh time");
+    }
+
+    /** Sample periods can't be negative. */
+    @Test
+    /* package */ void testSamplePeriod() {
+        final PigeonGyro gyro = makeGyro(new GyroCache());
+        assertThrows(IllegalArgumentException.class, () -> gyro.setSamplePeriod(-0.01), "Negative period refused");
+        gyro.setSamplePeriod(0);
+        gyro.getAngle();
+        gyro.getAngle();
+        assertEquals(2, reads, "A zero period reads every call");
+    }
+}
@@ -0,0 +1,33 @@
+package com.chopshop166.chopshoplib.states;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that GainSchedule interpolates between entries. */
+final class GainScheduleTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** Gains are interpolated between entries and clamped outside them. */
+    @Test
+    /* package */ void testInterpolation() {
+        final GainSchedule schedule = new GainSchedule();
+        schedule.add(10, new PIDValues(2, 0, 0).withElevatorFeedforward(0, 1.0, 0, 0));
+        schedule.add(0, new PIDValues(1, 0, 0).withElevatorFeedforward(0, 0.5, 0, 0));
+        schedule.add(20, new PIDValues(4, 0, 0).withElevatorFeedforward(0, 2.0, 0, 0));
+
+        schedule.update(5);
+        assertEquals(1.5, schedule.getP(), EPSILON, "Halfway between the first entries");
+        assertEquals(0.75, schedule.calculateFeedforward(0, 0, 0, 0), EPSILON, "Gravity is interpolated");
+        schedule.update(10);
+        assertEquals(2, schedule.getP(), EPSILON, "Exact key");
+        schedule.update(17.5);
+        assertEquals(3.5, schedule.getP(), EPSILON, "Between the last entries");
+        schedule.update(-5);
+        assertEquals(1, schedule.getP(), EPSILON, "Below the table");
+        schedule.update(50);
+        assertEquals(4, schedule.getP(), EPSILON, "Above the table");
+    }
+}
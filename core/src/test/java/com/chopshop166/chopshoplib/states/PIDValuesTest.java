@@ -0,0 +1,36 @@
+package com.chopshop166.chopshoplib.states;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** Test that PIDValues calculates each feedforward term. */
+final class PIDValuesTest {
+
+    /** Tolerance for floating point comparisons. */
+    private static final double EPSILON = 1e-9;
+
+    /** Static, velocity and acceleration terms follow the motion. */
+    @Test
+    /* package */ void testFeedforward() {
+        final PIDValues values = new PIDValues(1, 0, 0, 0.5).withFeedforward(0.1, 2.0, 0.3);
+        assertEquals(0.5 * 4 + 0.1 + 2.0 * 1.5 + 0.3 * 2.0, values.calculateFeedforward(4, 0, 1.5, 2.0), EPSILON,
+                "All terms add up");
+        assertEquals(0.5 * 4 - 0.1 - 2.0 * 1.5, values.calculateFeedforward(4, 0, -1.5, 0), EPSILON,
+                "Static term follows the direction of motion");
+        assertEquals(0.5 * 4, values.calculateFeedforward(4, 0, 0, 0), EPSILON,
+                "Only the setpoint term applies when not moving");
+    }
+
+    /** Elevator gravity is constant, and arm gravity follows the angle. */
+    @Test
+    /* package */ void testGravity() {
+        final PIDValues elevator = new PIDValues(1, 0, 0).withElevatorFeedforward(0, 0.4, 0, 0);
+        assertEquals(0.4, elevator.calculateFeedforward(0, 1.0, 0, 0), EPSILON, "Elevator gravity is constant");
+
+        final PIDValues arm = new PIDValues(1, 0, 0).withArmFeedforward(0, 0.4, 0, 0);
+        assertEquals(0.4, arm.calculateFeedforward(0, 0, 0, 0), EPSILON, "Arm gravity is full when horizontal");
+        assertEquals(0.0, arm.calculateFeedforward(0, Math.PI / 2, 0, 0), EPSILON, "No arm gravity when vertical");
+        assertEquals(0.2, arm.calculateFeedforward(0, Math.PI / 3, 0, 0), EPSILON, "Arm gravity follows cos");
+    }
+}